@@ -8,7 +8,7 @@ import java.lang.annotation.Target;
 /**
  * Specify a list of {@link UniqueConstraint} that should be applied on the table level
  */
-@Retention(RetentionPolicy.SOURCE) @Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS) @Target(ElementType.TYPE)
 public @interface Constraints {
 
     /** list of unique constraints */
@@ -44,4 +44,37 @@ public @interface ContentProvider {
   String authority();
 
   Class database();
+
+  /**
+   * Delay, in milliseconds, used to coalesce change notifications. When larger than 0,
+   * notifications are held back for this long, and each distinct Uri is then notified once.
+   */
+  long notifyDebounce() default 0;
+
+  /**
+   * When larger than 0, bulkInsert and applyBatch yield their transaction every {@code yieldEvery}
+   * rows or operations, if another thread is waiting for the database. Work done before a yield
+   * is committed, even if a later row or operation fails.
+   */
+  int yieldEvery() default 0;
+
+  /**
+   * Maximum number of query results cached for content URIs marked
+   * {@link ContentUri#cacheable()} or {@link InexactContentUri#cacheable()}.
+   */
+  int queryCacheSize() default 20;
+
+  /**
+   * When true, each insert, update or delete also notifies every content URI that reads a table
+   * changed by the write, e.g. through its join or a subquery in its projection map. Content URIs
+   * with a {@code #} or {@code *} segment are notified through the path before that segment.
+   */
+  boolean notifyDependentUris() default false;
+
+  /**
+   * When true, the database is opened on a background thread when the provider is created, and
+   * the query of each content URI is prepared with the default projection and sort order. Calls
+   * made before the database is open wait for it.
+   */
+  boolean prewarm() default false;
 }
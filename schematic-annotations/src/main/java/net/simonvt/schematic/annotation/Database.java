@@ -24,6 +24,10 @@ import static java.lang.annotation.RetentionPolicy.CLASS;
 
 /**
  * The class annotated describes a SQLiteOpenHelper.
+ * <p>
+ * The connection settings are applied in the generated {@code onConfigure}, before any
+ * {@link OnConfigure} method is called. Except for write-ahead logging and page size, they only
+ * apply to the primary connection.
  * <pre>{@code
  * &#064;Database(version = NotesDatabase.VERSION)
  * public final class NotesDatabase {
@@ -45,4 +49,57 @@ public @interface Database {
   String packageName() default "";
 
   int version();
+
+  /**
+   * Enable write-ahead logging, which lets reads run concurrently with a write, and lets the
+   * database use more than one connection.
+   */
+  boolean writeAheadLogging() default false;
+
+  /** PRAGMA synchronous. {@link Synchronous#DEFAULT} leaves the setting of the platform. */
+  Synchronous synchronous() default Synchronous.DEFAULT;
+
+  /**
+   * PRAGMA cache_size. A positive value is a number of pages, a negative value a size in KiB. 0
+   * leaves the default.
+   */
+  int cacheSize() default 0;
+
+  /**
+   * PRAGMA page_size, in bytes. Only has an effect before the database is created. 0 leaves the
+   * default.
+   */
+  int pageSize() default 0;
+
+  /** PRAGMA mmap_size, in bytes. 0 disables memory-mapped I/O, -1 leaves the default. */
+  long mmapSize() default -1;
+
+  /** PRAGMA temp_store. {@link TempStore#DEFAULT} leaves the default. */
+  TempStore tempStore() default TempStore.DEFAULT;
+
+  /**
+   * Build the database at compile time, and install it from the app's assets the first time it is
+   * opened, instead of creating each table, index and {@link ExecOnCreate} statement on the device.
+   * <p>
+   * The database is written to {@code schematic/<fileName>} in the class output, and installed from
+   * the same path in the assets. The build has to copy it into the assets. Requires the SQLite JDBC
+   * driver, {@code org.xerial:sqlite-jdbc}, on the annotation processor path. If the asset is
+   * missing, the database is created as usual. Can not be combined with an {@link OnCreate}
+   * method.
+   */
+  boolean prebuilt() default false;
+
+  enum Synchronous {
+    DEFAULT,
+    OFF,
+    NORMAL,
+    FULL,
+    EXTRA
+  }
+
+  enum TempStore {
+    DEFAULT,
+    FILE,
+    MEMORY
+  }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Creates an index on a table. Annotate a column to index that column, or the columns interface
+ * to index one or more columns. Use {@link Indices} to add multiple indexes to the interface.
+ * <pre>{@code
+ * &#064;Index(columns = { NoteColumns.LIST_ID, NoteColumns.STATUS + " DESC" })
+ * public interface NoteColumns {
+ *
+ *   &#064;DataType(INTEGER) &#064;Index String LIST_ID = "listId";
+ *   ...
+ * }
+ * }</pre>
+ * Indexes are created with their table in {@code onCreate}. To add an index to an existing
+ * database, bump the database version and create the index in an {@link OnUpgrade} method.
+ */
+@Retention(CLASS) @Target({ FIELD, TYPE })
+public @interface Index {
+  /** Name of the index. Defaults to the table name followed by the column names. */
+  String name() default "";
+
+  /**
+   * Columns of the index, optionally followed by ASC or DESC. When annotating a column, defaults
+   * to that column.
+   */
+  String[] columns() default {};
+
+  boolean unique() default false;
+
+  /**
+   * Expression for a partial index, which only indexes the rows it matches. Partial indexes
+   * require SQLite 3.8.0, which ships with API 21.
+   */
+  String where() default "";
+}
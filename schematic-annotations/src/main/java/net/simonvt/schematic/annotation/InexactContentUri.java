@@ -69,4 +69,32 @@ public @interface InexactContentUri {
   boolean allowDelete() default true;
 
   boolean allowInsert() default true;
+
+  /**
+   * The algorithm used when a row inserted through the URI conflicts with an existing row.
+   * {@code ROLLBACK} is not supported, as it rolls back the transactions of {@code bulkInsert} and
+   * {@code applyBatch}.
+   */
+  ConflictResolutionType onConflict() default ConflictResolutionType.NONE;
+
+  /**
+   * Columns of a primary key or unique index. Rows inserted through the URI that conflict on these
+   * columns update the existing row with their other values instead. Upserts require SQLite 3.24,
+   * which ships with Android 11 (API 30), so the compiler warns when they are used.
+   */
+  String[] upsertColumns() default { };
+
+  /**
+   * An integer column matched against the keys appended to the URI with
+   * {@code net.simonvt.schematic.Keys#withKeys}. Queries, updates and deletes on the URI are then
+   * restricted to the rows with one of the keys.
+   */
+  String keyColumn() default "";
+
+  /**
+   * Cache query results in memory. A cached result is dropped when one of the tables it reads is
+   * written to through the generated ContentProvider. Writes that bypass the ContentProvider are
+   * not seen, so only mark content URIs whose tables are written through it.
+   */
+  boolean cacheable() default false;
 }
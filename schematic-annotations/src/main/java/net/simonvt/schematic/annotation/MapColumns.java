@@ -37,6 +37,10 @@ import static java.lang.annotation.RetentionPolicy.CLASS;
  * <pre>
  * SELECT (to AS from) FROM table
  * </pre>
+ *
+ * Tables read by the mapped subqueries are found in the String constants declared in the same
+ * class as the method. They are used to invalidate cached queries, and with
+ * {@link ContentProvider#notifyDependentUris()}, to notify the content URIs of the class.
  */
 @Retention(CLASS) @Target(METHOD)
 public @interface MapColumns {
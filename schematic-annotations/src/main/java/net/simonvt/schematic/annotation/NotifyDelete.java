@@ -29,4 +29,17 @@ import static java.lang.annotation.RetentionPolicy.CLASS;
 @Retention(CLASS) @Target(METHOD)
 public @interface NotifyDelete {
   String[] paths() default { };
+
+  /**
+   * Integer columns read from the rows matched by the delete, in the same transaction and before
+   * they are deleted. The values of each column are passed to the {@code long[]} parameters of the
+   * method, in order.
+   * <pre>{@code
+   * &#064;NotifyDelete(paths = Path.NOTES + "/#", keyColumns = NoteColumns.LIST_ID)
+   * public static Uri[] onDelete(Uri uri, long[] listIds) {
+   *   ...
+   * }
+   * }</pre>
+   */
+  String[] keyColumns() default { };
 }
@@ -29,4 +29,17 @@ import static java.lang.annotation.RetentionPolicy.CLASS;
 @Retention(CLASS) @Target(METHOD)
 public @interface NotifyUpdate {
   String[] paths() default { };
+
+  /**
+   * Integer columns read from the rows matched by the update, in the same transaction and before
+   * they are updated. The values of each column are passed to the {@code long[]} parameters of the
+   * method, in order.
+   * <pre>{@code
+   * &#064;NotifyUpdate(paths = Path.NOTES + "/#", keyColumns = NoteColumns.LIST_ID)
+   * public static Uri[] onUpdate(Uri uri, long[] listIds) {
+   *   ...
+   * }
+   * }</pre>
+   */
+  String[] keyColumns() default { };
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Generate an immutable class holding one row of the table. Columns annotated with
+ * {@link NotNull}, and INTEGER primary keys, are stored as primitives. The generated class can be
+ * created from a cursor with {@code fromCursor}.
+ * <pre>{@code
+ * &#064;RowModel
+ * public interface ListColumns {
+ *
+ *   &#064;DataType(INTEGER) &#064;PrimaryKey &#064;AutoIncrement String ID = "_id";
+ *
+ *   &#064;DataType(TEXT) &#064;NotNull String TITLE = "title";
+ * }
+ * }</pre>
+ */
+@Retention(CLASS) @Target(TYPE)
+public @interface RowModel {
+  /** Name of the generated class. Defaults to the name of the table followed by "Row". */
+  String name() default "";
+}
@@ -38,4 +38,17 @@ import static java.lang.annotation.RetentionPolicy.CLASS;
 @Retention(CLASS) @Target(TYPE)
 public @interface TableEndpoint {
   String table();
+
+  /**
+   * Overrides {@link ContentProvider#yieldEvery()} for bulk inserts into this endpoint. The
+   * default, -1, uses the value of the ContentProvider.
+   */
+  int yieldEvery() default -1;
+
+  /**
+   * The {@link Database} the table is in, if it is not the database of the ContentProvider. Each
+   * database is a separate file with its own write lock, so writes to tables in different
+   * databases do not wait for each other.
+   */
+  Class database() default void.class;
 }
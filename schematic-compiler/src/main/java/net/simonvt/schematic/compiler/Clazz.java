@@ -24,6 +24,8 @@ public interface Clazz {
 
   ClassName CURSOR = ClassName.get("android.database", "Cursor");
 
+  ClassName CONTENT_RESOLVER = ClassName.get("android.content", "ContentResolver");
+
   ClassName CONTENT_PROVIDER = ClassName.get("android.content", "ContentProvider");
 
   ClassName CONTENT_URIS = ClassName.get("android.content", "ContentUris");
@@ -38,13 +40,34 @@ public interface Clazz {
   ClassName OPERATION_APPLICATION_EXCEPTION =
       ClassName.get("android.content", "OperationApplicationException");
 
+  ClassName BULK_INSERTER = ClassName.get("net.simonvt.schematic.utils", "BulkInserter");
+
+  ClassName NOTIFICATION_BUFFER =
+      ClassName.get("net.simonvt.schematic.utils", "NotificationBuffer");
+
+  ClassName KEYS = ClassName.get("net.simonvt.schematic", "Keys");
+
+  ClassName DATABASE_PREWARMER =
+      ClassName.get("net.simonvt.schematic.utils", "DatabasePrewarmer");
+
+  ClassName PREBUILT_DATABASE =
+      ClassName.get("net.simonvt.schematic.utils", "PrebuiltDatabase");
+
+  ClassName PAGED_QUERY = ClassName.get("net.simonvt.schematic", "PagedQuery");
+
+  ClassName PAGED_QUERY_ROW_MAPPER = PAGED_QUERY.nestedClass("RowMapper");
+
+  ClassName QUERY_CACHE = ClassName.get("net.simonvt.schematic.utils", "QueryCache");
+
+  ClassName QUERY_CACHE_KEY = QUERY_CACHE.nestedClass("Key");
+
   ClassName SELECTION_BUILDER = ClassName.get("net.simonvt.schematic.utils", "SelectionBuilder");
 
   ClassName SQLITE_DATABASE = ClassName.get("android.database.sqlite", "SQLiteDatabase");
 
+  ClassName SQLITE_STATEMENT = ClassName.get("android.database.sqlite", "SQLiteStatement");
+
   ClassName SQLITE_OPEN_HELPER = ClassName.get("android.database.sqlite", "SQLiteOpenHelper");
 
   ClassName URI = ClassName.get("android.net", "Uri");
-
-  ClassName URI_MATCHER = ClassName.get("android.content", "UriMatcher");
 }
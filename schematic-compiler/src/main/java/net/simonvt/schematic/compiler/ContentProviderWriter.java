@@ -16,6 +16,7 @@
 
 package net.simonvt.schematic.compiler;
 
+import com.google.common.base.CaseFormat;
 import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
@@ -29,6 +30,9 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +48,7 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.tools.Diagnostic.Kind;
 import javax.tools.JavaFileObject;
+import net.simonvt.schematic.annotation.ConflictResolutionType;
 import net.simonvt.schematic.annotation.ContentProvider;
 import net.simonvt.schematic.annotation.ContentUri;
 import net.simonvt.schematic.annotation.Database;
@@ -56,11 +61,22 @@ import net.simonvt.schematic.annotation.NotifyBulkInsert;
 import net.simonvt.schematic.annotation.NotifyDelete;
 import net.simonvt.schematic.annotation.NotifyInsert;
 import net.simonvt.schematic.annotation.NotifyUpdate;
+import net.simonvt.schematic.annotation.Table;
 import net.simonvt.schematic.annotation.TableEndpoint;
 import net.simonvt.schematic.annotation.Where;
 
 public class ContentProviderWriter {
 
+  static final String OPTION_MAX_METHOD_SIZE = "schematic.maxMethodSize";
+
+  // Rough bytecode size of a generated statement, used to estimate method sizes
+  private static final int BYTES_PER_STATEMENT = 12;
+
+  // Type of the notify method parameters receiving key columns
+  private static final TypeName KEYS = ArrayTypeName.of(long.class);
+
+  private static final String[] NO_KEYS = {};
+
   static class UriContract {
 
     static enum Type {
@@ -74,6 +90,8 @@ public class ContentProviderWriter {
 
     String name;
 
+    String fieldName;
+
     String classQualifiedName;
 
     String table;
@@ -96,6 +114,10 @@ public class ContentProviderWriter {
 
     int[] pathSegments;
 
+    int yieldEvery;
+
+    Element element;
+
     Element parent;
 
     boolean allowQuery;
@@ -103,11 +125,51 @@ public class ContentProviderWriter {
     boolean allowUpdate;
     boolean allowDelete;
 
+    boolean cacheable;
+
+    // Conflict algorithm of inserts, or null to fail
+    String conflictAlgorithm;
+
+    // Conflict target of upserts, or null if rows are not upserted
+    String[] upsertColumns;
+
+    // Column matched against the keys appended to the URI, or null
+    String keyColumn;
+
+    // Database the table of the URI is in
+    Shard shard;
+
     UriContract(Type type) {
       this.contractType = type;
     }
   }
 
+  /** A database the ContentProvider routes the URIs of some of its endpoints to. */
+  static class Shard {
+
+    // Position in the order transactions are started in
+    int index;
+
+    Element database;
+
+    ClassName className;
+
+    // Name of the SQLiteOpenHelper field in the generated ContentProvider
+    String fieldName;
+
+    Set<String> tables = new HashSet<>();
+
+    // The endpoint that first routed URIs to the database, where name clashes are reported
+    Element endpoint;
+
+    Shard(int index, Element database, ClassName className, String fieldName) {
+      this.index = index;
+      this.database = database;
+      this.className = className;
+      this.fieldName = fieldName;
+    }
+  }
+
   ProcessingEnvironment processingEnv;
   Elements elementUtils;
 
@@ -117,6 +179,12 @@ public class ContentProviderWriter {
   Element provider;
   String descriptorPackage;
   String authority;
+  long notifyDebounce;
+  int yieldEvery;
+  int queryCacheSize;
+  boolean hasCacheableUris;
+  boolean notifyDependentUris;
+  boolean prewarm;
 
   // Package and class className of generated provider
   // String providerPackage;
@@ -131,7 +199,7 @@ public class ContentProviderWriter {
   ExecutableElement defaultNotifyDelete;
 
   List<UriContract> uris = new ArrayList<>();
-  List<String> paths = new ArrayList<>();
+  Set<String> paths = new HashSet<>();
   Map<String, Element> notificationUris = new HashMap<>();
   Map<String, ExecutableElement> notifyInsert = new HashMap<>();
   Map<String, ExecutableElement> notifyBulkInsert = new HashMap<>();
@@ -143,6 +211,18 @@ public class ContentProviderWriter {
 
   Map<Element, ExecutableElement> columnMaps = new HashMap<>();
 
+  Map<String, TableWriter> tables = new HashMap<>();
+
+  // Null unless the provider has cacheable content URIs, or notifies dependent URIs
+  QueryCacheWriter queryCache;
+  DependentUriWriter dependentUris;
+
+  // The database of the ContentProvider first, then any database an endpoint routes to
+  Map<Element, Shard> shards = new LinkedHashMap<>();
+
+  ShardWriter shardWriter = new ShardWriter(this);
+  PrewarmWriter prewarmWriter = new PrewarmWriter(this);
+
   public ContentProviderWriter(ProcessingEnvironment processingEnv, Elements elements,
       Element provider) {
     this.processingEnv = processingEnv;
@@ -154,6 +234,11 @@ public class ContentProviderWriter {
 
     ContentProvider annotation = provider.getAnnotation(ContentProvider.class);
     this.authority = annotation.authority();
+    this.notifyDebounce = annotation.notifyDebounce();
+    this.yieldEvery = annotation.yieldEvery();
+    this.queryCacheSize = annotation.queryCacheSize();
+    this.notifyDependentUris = annotation.notifyDependentUris();
+    this.prewarm = annotation.prewarm();
 
     this.providerName = annotation.name();
     if (providerName.trim().isEmpty()) {
@@ -171,30 +256,11 @@ public class ContentProviderWriter {
     } catch (MirroredTypeException e) {
       TypeMirror mirror = e.getTypeMirror();
       this.database = processingEnv.getTypeUtils().asElement(mirror);
-      String databaseSchematicName = this.database.getSimpleName().toString();
-      String databaseSchematicPackage = this.database.getEnclosingElement().getSimpleName().toString();
-      Database database = this.database.getAnnotation(Database.class);
-      if (database == null) {
-        error("Database class "
-            + this.database.toString()
-            + ", referenced from ContentProvider "
-            + provider.toString()
-            + ", is missing @Database annotation");
-      }
-      String databaseName = database.className();
-      String databasePackage = database.packageName();
-
-      String resultingPackage = databaseSchematicPackage;
-      String resultingName = databaseSchematicName;
+      databaseClass = getDatabaseClass(this.database);
 
-      if (!databasePackage.trim().isEmpty()) {
-        resultingPackage = databasePackage;
-      }
-      if (!databaseName.trim().isEmpty()) {
-        resultingName = databaseName;
-      }
-
-      databaseClass = ClassName.get(resultingPackage, resultingName);
+      Shard shard = new Shard(0, this.database, databaseClass, "database");
+      shards.put(this.database, shard);
+      findTables(this.database, shard);
     }
 
     List<? extends Element> enclosedElements = provider.getEnclosedElements();
@@ -221,6 +287,11 @@ public class ContentProviderWriter {
       TableEndpoint tableEndpoint = enclosedElement.getAnnotation(TableEndpoint.class);
       if (tableEndpoint != null) {
         final String table = tableEndpoint.table();
+        int tableYieldEvery = tableEndpoint.yieldEvery();
+        if (tableYieldEvery < 0) {
+          tableYieldEvery = yieldEvery;
+        }
+        Shard shard = shardWriter.getShard(tableEndpoint, enclosedElement);
 
         // Get uri's
         List<? extends Element> contentUris = enclosedElement.getEnclosedElements();
@@ -234,9 +305,7 @@ public class ContentProviderWriter {
               error("Empty path for " + getFullyQualified(element));
             }
 
-            if (!paths.contains(path)) {
-              paths.add(path);
-            } else {
+            if (!paths.add(path)) {
               error("Duplicate path " + path);
             }
 
@@ -246,6 +315,7 @@ public class ContentProviderWriter {
             contract.name = enclosedElement.getSimpleName().toString().toUpperCase()
                 + "_"
                 + element.getSimpleName().toString();
+            contract.fieldName = element.getSimpleName().toString();
             contract.classQualifiedName = parent;
 
             String contentTable = contentUri.table();
@@ -288,7 +358,18 @@ public class ContentProviderWriter {
             contract.allowInsert = contentUri.allowInsert();
             contract.allowUpdate = contentUri.allowUpdate();
             contract.allowDelete = contentUri.allowDelete();
+            contract.cacheable = contentUri.cacheable();
+            setConflictPolicy(contract, element, contentUri.onConflict(),
+                contentUri.upsertColumns());
 
+            String keyColumn = contentUri.keyColumn();
+            if (!keyColumn.trim().isEmpty()) {
+              contract.keyColumn = keyColumn;
+            }
+            contract.yieldEvery = tableYieldEvery;
+            contract.shard = shard;
+
+            contract.element = element;
             contract.parent = enclosedElement;
 
             uris.add(contract);
@@ -304,9 +385,7 @@ public class ContentProviderWriter {
             }
 
             contract.path = path;
-            if (!paths.contains(path)) {
-              paths.add(path);
-            } else {
+            if (!paths.add(path)) {
               error("Duplicate path " + path);
             }
 
@@ -360,7 +439,18 @@ public class ContentProviderWriter {
             contract.allowInsert = inexactUri.allowInsert();
             contract.allowUpdate = inexactUri.allowUpdate();
             contract.allowDelete = inexactUri.allowDelete();
+            contract.cacheable = inexactUri.cacheable();
+            setConflictPolicy(contract, element, inexactUri.onConflict(),
+                inexactUri.upsertColumns());
 
+            String keyColumn = inexactUri.keyColumn();
+            if (!keyColumn.trim().isEmpty()) {
+              contract.keyColumn = keyColumn;
+            }
+            contract.yieldEvery = tableYieldEvery;
+            contract.shard = shard;
+
+            contract.element = element;
             contract.parent = enclosedElement;
 
             uris.add(contract);
@@ -442,6 +532,104 @@ public class ContentProviderWriter {
     checkPathsExist(notifyDelete);
     checkPathsExist(whereCalls);
     checkPathsExist(insertUris);
+    shardWriter.checkNames();
+
+    for (UriContract uri : uris) {
+      hasCacheableUris |= uri.cacheable && uri.allowQuery;
+
+      for (Shard shard : shards.values()) {
+        if (shard != uri.shard && shard.tables.contains(uri.table)) {
+          error("Table " + uri.table + " of " + getFullyQualified(uri.element) + " is in "
+              + shard.database + ", not in " + uri.shard.database);
+        }
+      }
+    }
+    if (hasCacheableUris && queryCacheSize <= 0) {
+      error("queryCacheSize must be larger than 0 for " + provider.toString());
+    }
+
+    if (hasCacheableUris || notifyDependentUris) {
+      Set<String> runtimePaths = new HashSet<>(joinCalls.keySet());
+      runtimePaths.addAll(whereCalls.keySet());
+      TableDependencies dependencies =
+          new TableDependencies(uris, tables, runtimePaths, columnMaps);
+      if (hasCacheableUris) {
+        queryCache = new QueryCacheWriter(uris, dependencies);
+      }
+      if (notifyDependentUris) {
+        dependentUris = new DependentUriWriter(uris, dependencies);
+      }
+    }
+  }
+
+  void findTables(Element element, Shard shard) {
+    for (Element enclosedElement : element.getEnclosedElements()) {
+      findTables(enclosedElement, shard);
+
+      Table table = enclosedElement.getAnnotation(Table.class);
+      if (table != null) {
+        TypeElement tableClass = null;
+        try {
+          table.value();
+        } catch (MirroredTypeException e) {
+          tableClass = (TypeElement) processingEnv.getTypeUtils().asElement(e.getTypeMirror());
+        }
+
+        VariableElement tableElement = (VariableElement) enclosedElement;
+        TableWriter tableWriter =
+            new TableWriter(processingEnv, tableElement, ClassName.get(tableClass));
+        if (tables.containsKey(tableWriter.name)) {
+          error("Table " + tableWriter.name + " is declared in more than one database");
+        }
+        tables.put(tableWriter.name, tableWriter);
+        shard.tables.add(tableWriter.name);
+      }
+    }
+  }
+
+  /** The ClassName of the SQLiteOpenHelper generated for {@code database}. */
+  ClassName getDatabaseClass(Element database) {
+    Database annotation = database.getAnnotation(Database.class);
+    if (annotation == null) {
+      error("Database class "
+          + database.toString()
+          + ", referenced from ContentProvider "
+          + provider.toString()
+          + ", is missing @Database annotation");
+      return null;
+    }
+
+    String packageName = database.getEnclosingElement().getSimpleName().toString();
+    String className = database.getSimpleName().toString();
+    if (!annotation.packageName().trim().isEmpty()) {
+      packageName = annotation.packageName();
+    }
+    if (!annotation.className().trim().isEmpty()) {
+      className = annotation.className();
+    }
+
+    return ClassName.get(packageName, className);
+  }
+
+  private void setConflictPolicy(UriContract contract, Element element,
+      ConflictResolutionType onConflict, String[] upsertColumns) {
+    if (onConflict == ConflictResolutionType.ROLLBACK) {
+      // Rolls back the transaction bulkInsert and applyBatch hold, which then fail to end it
+      processingEnv.getMessager().printMessage(Kind.ERROR, "onConflict ROLLBACK is not supported "
+          + "for " + getFullyQualified(element) + ", use ABORT or FAIL", element);
+    } else if (onConflict != ConflictResolutionType.NONE) {
+      contract.conflictAlgorithm = onConflict.name();
+    }
+    if (upsertColumns.length > 0) {
+      contract.upsertColumns = upsertColumns;
+      processingEnv.getMessager().printMessage(Kind.WARNING, "upsertColumns of "
+          + getFullyQualified(element) + " require SQLite 3.24, which ships with Android 11 "
+          + "(API 30). Inserts through the URI fail on older devices", element);
+    }
+
+    if (contract.conflictAlgorithm != null && contract.upsertColumns != null) {
+      error("Both onConflict and upsertColumns set for " + getFullyQualified(element));
+    }
   }
 
   private void checkPathsExist(Map<String, ? extends Element> map) {
@@ -454,7 +642,7 @@ public class ContentProviderWriter {
   }
 
   public void write(Filer filer) throws IOException {
-    JavaFileObject jfo = filer.createSourceFile(getFileName());
+    JavaFileObject jfo = filer.createSourceFile(getFileName(), getOriginatingElements());
     Writer out = jfo.openWriter();
 
     TypeSpec.Builder contentResolver = TypeSpec.classBuilder(providerName)
@@ -483,88 +671,253 @@ public class ContentProviderWriter {
       contentResolver.addField(idSpec);
     }
 
-    // Set up URI_MATCHER
-    FieldSpec matcherSpec =
-        FieldSpec.builder(Clazz.URI_MATCHER, "MATCHER", Modifier.PRIVATE, Modifier.STATIC,
-            Modifier.FINAL)
-            .initializer("new $T($T.NO_MATCH)", Clazz.URI_MATCHER, Clazz.URI_MATCHER)
-            .build();
-    contentResolver.addField(matcherSpec);
-
-    CodeBlock.Builder matcherInitializerBuilder = CodeBlock.builder();
-
+    // Set up matcher
+    UriMatcherWriter matcher = new UriMatcherWriter();
     for (UriContract uri : uris) {
-      String path;
-      if (uri.path != null) {
-        path = "\"" + uri.path + "\"";
-      } else {
-        path = String.format("%s.%s.getPath()", uri.classQualifiedName, uri.name);
+      if (!matcher.addPath(uri.path, uri.name)) {
+        error("Path " + uri.path + " matches the same URIs as another path");
       }
-      matcherInitializerBuilder.addStatement("MATCHER.addURI(AUTHORITY, $L, $L)", path, uri.name);
     }
-
-    CodeBlock matcherBlock = matcherInitializerBuilder.build();
-    contentResolver.addStaticBlock(matcherBlock);
+    matcher.write(contentResolver);
 
     // Database variable
     FieldSpec databaseSpec =
         FieldSpec.builder(Clazz.SQLITE_OPEN_HELPER, "database", Modifier.PRIVATE).build();
     contentResolver.addField(databaseSpec);
+    for (Shard shard : shards.values()) {
+      if (shard.index > 0) {
+        contentResolver.addField(Clazz.SQLITE_OPEN_HELPER, shard.fieldName, Modifier.PRIVATE);
+      }
+    }
+
+    contentResolver.addField(Clazz.NOTIFICATION_BUFFER, "notifications", Modifier.PRIVATE);
+
+    if (hasCacheableUris) {
+      contentResolver.addField(Clazz.QUERY_CACHE, "queryCache", Modifier.PRIVATE);
+      queryCache.write(contentResolver);
+    }
+
+    if (notifyDependentUris) {
+      dependentUris.write(contentResolver);
+    }
+
+    addStaticSql(contentResolver);
+
+    if (prewarm) {
+      for (Shard shard : shards.values()) {
+        prewarmWriter.write(contentResolver, shard);
+      }
+    }
+
+    if (shards.size() > 1) {
+      shardWriter.write(contentResolver);
+    }
 
     // onCreate
     MethodSpec onCreateSpec = getOnCreateSpec();
     contentResolver.addMethod(onCreateSpec);
 
     // getBuilder
+    addProjectionMaps(contentResolver);
     contentResolver.addMethod(getBuilderSpec());
+    if (prewarm) {
+      contentResolver.addMethod(prewarmWriter.getQuerySpec());
+    }
     contentResolver.addMethod(getInsertValuesSpec());
-    contentResolver.addMethod(getBulkInsertSpec());
+    addBulkInsertSpecs(contentResolver);
     contentResolver.addMethod(getApplyBatchSpec());
     contentResolver.addMethod(getTypeSpec());
-    contentResolver.addMethod(getQuerySpec());
-    contentResolver.addMethod(getInsertSpec());
-    contentResolver.addMethod(getUpdateSpec());
-    contentResolver.addMethod(getDeleteSpec());
+    addQuerySpecs(contentResolver);
+    addInsertSpecs(contentResolver);
+    addUpdateSpecs(contentResolver);
+    addDeleteSpecs(contentResolver);
+
+    addPagedQuerySpecs(contentResolver);
 
-    JavaFile javaFile = JavaFile.builder(outPackage, contentResolver.build()).build();
+    new QueryPlanChecker(processingEnv).check(tables.values(), uris, joinCalls.keySet());
+
+    TypeSpec typeSpec = contentResolver.build();
+    checkMethodSizes(typeSpec);
+
+    JavaFile javaFile = JavaFile.builder(outPackage, typeSpec).build();
     javaFile.writeTo(out);
     out.flush();
     out.close();
   }
 
   private MethodSpec getOnCreateSpec() {
-    return MethodSpec.methodBuilder("onCreate")
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("onCreate")
         .returns(boolean.class)
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
         .addStatement("database = $T.getInstance(getContext())", databaseClass)
-        .addStatement("return true")
+        .addStatement("notifications = new $T(getContext().getContentResolver(), $LL)",
+            Clazz.NOTIFICATION_BUFFER, notifyDebounce);
+
+    if (hasCacheableUris) {
+      spec.addStatement("queryCache = new $T($L)", Clazz.QUERY_CACHE, queryCacheSize);
+    }
+
+    for (Shard shard : shards.values()) {
+      if (shard.index > 0) {
+        spec.addStatement("$L = $T.getInstance(getContext())", shard.fieldName, shard.className);
+      }
+    }
+
+    if (prewarm) {
+      prewarmWriter.addStart(spec);
+    }
+
+    return spec.addStatement("return true").build();
+  }
+
+  /** The expression used to get the SQLiteOpenHelper of {@code shard} in generated methods. */
+  String getDatabase(Shard shard) {
+    return prewarm ? shard.fieldName + "()" : shard.fieldName;
+  }
+
+  /**
+   * Adds constants holding the parts of each content URI's SQL that are known at compile time: its
+   * where clauses, and its table joined with the join clause.
+   */
+  private void addStaticSql(TypeSpec.Builder contentResolver) {
+    for (UriContract uri : uris) {
+      String where = getStaticWhere(uri);
+      if (where != null && (uri.allowQuery || uri.allowUpdate || uri.allowDelete)) {
+        contentResolver.addField(FieldSpec.builder(String.class, getStaticWhereName(uri),
+            Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer("$S", where)
+            .build());
+      }
+
+      if (uri.join != null && uri.allowQuery) {
+        contentResolver.addField(FieldSpec.builder(String.class, getStaticTableName(uri),
+            Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer("$S", uri.table + " " + uri.join)
+            .build());
+      }
+    }
+  }
+
+  private static String getStaticWhereName(UriContract uri) {
+    return uri.name + "_WHERE";
+  }
+
+  private static String getStaticTableName(UriContract uri) {
+    return uri.name + "_TABLE";
+  }
+
+  /**
+   * The where clauses of {@code uri} known at compile time combined with AND, or null if there are
+   * none. The where columns of an inexact URI are bound to their path segments at runtime.
+   */
+  private static String getStaticWhere(UriContract uri) {
+    List<String> clauses = new ArrayList<>();
+    if (uri.contractType == UriContract.Type.INEXACT) {
+      for (String column : uri.whereColumns) {
+        clauses.add(column + "=?");
+      }
+    }
+    for (String where : uri.where) {
+      if (!where.trim().isEmpty()) {
+        clauses.add(where);
+      }
+    }
+
+    if (clauses.isEmpty()) {
+      return null;
+    }
+    if (clauses.size() == 1) {
+      return clauses.get(0);
+    }
+
+    StringBuilder where = new StringBuilder();
+    for (String clause : clauses) {
+      if (where.length() > 0) {
+        where.append(" AND ");
+      }
+      where.append('(').append(clause).append(')');
+    }
+    return where.toString();
+  }
+
+  /** Adds the where clauses of {@code uri} known at compile time to the builder in one call. */
+  private static void addStaticWhere(MethodSpec.Builder method, UriContract uri) {
+    if (getStaticWhere(uri) == null) {
+      return;
+    }
+
+    CodeBlock.Builder args = CodeBlock.builder();
+    if (uri.contractType == UriContract.Type.INEXACT) {
+      for (int pathSegment : uri.pathSegments) {
+        args.add(", uri.getPathSegments().get($L)", pathSegment);
+      }
+    }
+    method.addStatement("builder.where($L$L)", getStaticWhereName(uri), args.build());
+  }
+
+  /** Invalidates the cached queries reading the tables changed by a write to {@code table}. */
+  private void addQueryCacheWrite(MethodSpec.Builder method, String table) {
+    if (queryCache != null) {
+      queryCache.addWrite(method, table);
+    }
+  }
+
+  private CodeBlock getSetNotificationUri(UriContract uri, String cursor) {
+    Element notifyUri = notificationUris.get(uri.path);
+    if (notifyUri != null) {
+      String parent =
+          ((TypeElement) notifyUri.getEnclosingElement()).getQualifiedName().toString();
+      String uriName = notifyUri.getSimpleName().toString();
+      return CodeBlock.builder()
+          .addStatement("$L.setNotificationUri(getContext().getContentResolver(), $L)", cursor,
+              parent + "." + uriName)
+          .build();
+    }
+
+    return CodeBlock.builder()
+        .addStatement("$L.setNotificationUri(getContext().getContentResolver(), uri)", cursor)
         .build();
   }
 
+  private void addProjectionMaps(TypeSpec.Builder contentResolver) {
+    for (Map.Entry<Element, ExecutableElement> entry : columnMaps.entrySet()) {
+      ExecutableElement method = entry.getValue();
+      String parent = ((TypeElement) method.getEnclosingElement()).getQualifiedName().toString();
+      String methodName = method.getSimpleName().toString();
+
+      FieldSpec projectionMapSpec =
+          FieldSpec.builder(ParameterizedTypeName.get(Map.class, String.class, String.class),
+              getProjectionMapName(entry.getKey()), Modifier.PRIVATE, Modifier.STATIC,
+              Modifier.FINAL)
+              .initializer("$T.createProjectionMap($L.$L())", Clazz.SELECTION_BUILDER, parent,
+                  methodName)
+              .build();
+      contentResolver.addField(projectionMapSpec);
+    }
+  }
+
+  static String getProjectionMapName(Element tableEndpoint) {
+    return tableEndpoint.getSimpleName().toString().toUpperCase() + "_PROJECTION_MAP";
+  }
+
   private MethodSpec getBuilderSpec() {
     MethodSpec.Builder spec = MethodSpec.methodBuilder("getBuilder")
         .returns(Clazz.SELECTION_BUILDER)
         .addModifiers(Modifier.PRIVATE)
         .addParameter(String.class, "table")
-        .addStatement("$T builder = new $T()", Clazz.SELECTION_BUILDER, Clazz.SELECTION_BUILDER);
+        .addStatement("$T builder = $T.obtain()", Clazz.SELECTION_BUILDER, Clazz.SELECTION_BUILDER);
 
     Set<Element> tableKeys = columnMaps.keySet();
-    for (Element key : tableKeys) {
-      ExecutableElement method = columnMaps.get(key);
-      String parent = ((TypeElement) method.getEnclosingElement()).getQualifiedName().toString();
-      String methodName = method.getSimpleName().toString();
-
-      spec.beginControlFlow("if ($S.equals(table))", key.getSimpleName().toString())
-          .addStatement("$T columnMap = $L.$L()",
-              ParameterizedTypeName.get(Map.class, String.class, String.class), parent, methodName)
-          .addStatement("$T keys = columnMap.keySet()",
-              ParameterizedTypeName.get(Set.class, String.class))
-          .beginControlFlow("for (String from : keys)")
-          .addStatement("String to = columnMap.get(from)")
-          .addStatement("builder.map(from, to)")
-          .endControlFlow()
-          .endControlFlow();
+    if (!tableKeys.isEmpty()) {
+      spec.beginControlFlow("switch (table)");
+      for (Element key : tableKeys) {
+        spec.beginControlFlow("case $S:", key.getSimpleName().toString())
+            .addStatement("builder.projectionMap($L)", getProjectionMapName(key))
+            .addStatement("break")
+            .endControlFlow();
+      }
+      spec.endControlFlow();
     }
 
     spec.addStatement("return builder");
@@ -577,54 +930,104 @@ public class ContentProviderWriter {
         .returns(ArrayTypeName.of(long.class))
         .addModifiers(Modifier.PRIVATE)
         .addParameter(Clazz.SQLITE_DATABASE, "db")
-        .addParameter(String.class, "table")
+        .addParameter(Clazz.BULK_INSERTER, "inserter")
         .addParameter(ArrayTypeName.of(Clazz.CONTENT_VALUES), "values")
+        .addParameter(int.class, "yieldEvery")
         .addStatement("long[] ids = new long[values.length]")
+        .beginControlFlow("try")
         .beginControlFlow("for (int i = 0; i < values.length; i++)")
-        .addStatement("$T cv = values[i]", Clazz.CONTENT_VALUES)
-        .addStatement("db.insertOrThrow(table, null, cv)")
+        .beginControlFlow("if (yieldEvery > 0 && i > 0 && i % yieldEvery == 0)")
+        .addStatement("db.yieldIfContendedSafely()")
+        .endControlFlow()
+        .addStatement("ids[i] = inserter.insert(values[i])")
+        .endControlFlow()
+        .nextControlFlow("finally")
+        .addStatement("inserter.close()")
         .endControlFlow()
         .addStatement("return ids")
         .build();
   }
 
-  private MethodSpec getBulkInsertSpec() {
+  private void addBulkInsertSpecs(TypeSpec.Builder contentResolver) {
     MethodSpec.Builder spec = MethodSpec.methodBuilder("bulkInsert")
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
         .returns(int.class)
         .addParameter(Clazz.URI, "uri")
-        .addParameter(ArrayTypeName.of(Clazz.CONTENT_VALUES), "values")
-        .addStatement("final $T db = database.getWritableDatabase()", Clazz.SQLITE_DATABASE)
+        .addParameter(ArrayTypeName.of(Clazz.CONTENT_VALUES), "values");
+
+    if (shards.size() > 1) {
+      spec.addStatement("final $T db = shard(shardOf(uri)).getWritableDatabase()",
+          Clazz.SQLITE_DATABASE);
+    } else {
+      spec.addStatement("final $T db = $L.getWritableDatabase()", Clazz.SQLITE_DATABASE,
+          getDatabase(shards.get(database)));
+    }
+
+    spec.addStatement("boolean successful = false")
         .addStatement("db.beginTransaction()")
-        .beginControlFlow("try")
+        .addStatement("notifications.beginBatch()");
 
-        .beginControlFlow("switch(MATCHER.match(uri))");
+    if (hasCacheableUris) {
+      spec.addStatement("queryCache.beginBatch()");
+    }
+
+    spec.beginControlFlow("try")
+        .beginControlFlow("switch(match(uri))");
 
+    List<MethodSpec> uriMethods = new ArrayList<>();
     for (UriContract uri : uris) {
       if (uri.allowInsert) {
+        String uriMethod = getUriMethodName("bulkInsert", uri);
         spec.beginControlFlow("case $L:", uri.name)
-            .addStatement("long[] ids = insertValues(db, $S, values)", uri.table);
+            .addStatement("$L(db, uri, values)", uriMethod)
+            .addStatement("break")
+            .endControlFlow();
+
+        MethodSpec.Builder method = MethodSpec.methodBuilder(uriMethod)
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Clazz.SQLITE_DATABASE, "db")
+            .addParameter(Clazz.URI, "uri")
+            .addParameter(ArrayTypeName.of(Clazz.CONTENT_VALUES), "values")
+            .addStatement("long[] ids = insertValues(db, $L, values, $L)", newBulkInserter(uri),
+                uri.yieldEvery);
+        addQueryCacheWrite(method, uri.table);
 
         if ((uri.path != null && notifyBulkInsert.containsKey(uri.path))
             || defaultNotifyBulkInsert != null) {
-          spec.addCode(getNotifyBulkInsert(uri));
-        } else {
-          spec.addStatement("getContext().getContentResolver().notifyChange(uri, null)");
+          method.addCode(getNotifyBulkInsert(uri));
+        } else if (!notifyDependentUris || !uri.allowQuery) {
+          method.addStatement("notifications.notifyChange(uri)");
+        }
+        if (notifyDependentUris) {
+          dependentUris.addNotify(method, uri);
         }
 
-        spec.addStatement("break").endControlFlow();
+        uriMethods.add(method.build());
       }
     }
 
     spec.endControlFlow()
         .addStatement("db.setTransactionSuccessful()")
+        .addStatement("successful = true")
         .nextControlFlow("finally")
+        .addCode("// Notify only once the transaction committed, as ending it can fail\n")
+        .addStatement("boolean committed = false")
+        .beginControlFlow("try")
         .addStatement("db.endTransaction()")
+        .addStatement("committed = successful")
+        .nextControlFlow("finally");
+
+    if (hasCacheableUris) {
+      spec.addStatement("queryCache.endBatch()");
+    }
+
+    spec.addStatement("notifications.endBatch(committed)")
+        .endControlFlow()
         .endControlFlow()
         .addStatement("return values.length");
 
-    return spec.build();
+    contentResolver.addMethod(spec.build()).addMethods(uriMethods);
   }
 
   private MethodSpec getApplyBatchSpec() {
@@ -638,14 +1041,108 @@ public class ContentProviderWriter {
     spec.addParameter(ParameterizedTypeName.get(arrayList, Clazz.CONTENT_PROVIDER_OPERATION), "ops")
         .addException(Clazz.OPERATION_APPLICATION_EXCEPTION);
 
-    spec.addStatement("$T[] results", Clazz.CONTENT_PROVIDER_RESULT)
-        .addStatement("final $T db = database.getWritableDatabase()", Clazz.SQLITE_DATABASE)
-        .addStatement("db.beginTransaction()")
-        .beginControlFlow("try")
-        .addStatement("results = super.applyBatch(ops)")
-        .addStatement("db.setTransactionSuccessful()")
-        .nextControlFlow("finally")
-        .addStatement("db.endTransaction()")
+    spec.addStatement("$T[] results", Clazz.CONTENT_PROVIDER_RESULT);
+
+    // With more than one database, a transaction is started on each database used by the batch
+    boolean sharded = shards.size() > 1;
+    if (sharded) {
+      spec.addStatement("final $T dbs = new $T[SHARD_COUNT]",
+          ArrayTypeName.of(Clazz.SQLITE_DATABASE), Clazz.SQLITE_DATABASE)
+          .beginControlFlow("for ($T op : ops)", Clazz.CONTENT_PROVIDER_OPERATION)
+          .addStatement("final int shard = shardOf(op.getUri())")
+          .beginControlFlow("if (dbs[shard] == null)")
+          .addStatement("dbs[shard] = shard(shard).getWritableDatabase()")
+          .endControlFlow()
+          .endControlFlow()
+          .addStatement("boolean successful = false")
+          .addCode("// Transactions are started on dbs[0] to dbs[started - 1]\n")
+          .addStatement("int started = 0");
+    } else {
+      spec.addStatement("final $T db = $L.getWritableDatabase()", Clazz.SQLITE_DATABASE,
+          getDatabase(shards.get(database)))
+          .addStatement("boolean successful = false")
+          .addStatement("db.beginTransaction()");
+    }
+    spec.addStatement("notifications.beginBatch()");
+
+    if (hasCacheableUris) {
+      spec.addStatement("queryCache.beginBatch()");
+    }
+
+    spec.beginControlFlow("try");
+
+    if (sharded) {
+      // Started in the try, so a failure to start one ends those already started
+      spec.addCode("// Transactions are started in the same order by every batch, so two batches "
+          + "can not\n// wait for each other\n")
+          .beginControlFlow("for (; started < dbs.length; started++)")
+          .beginControlFlow("if (dbs[started] != null)")
+          .addStatement("dbs[started].beginTransaction()")
+          .endControlFlow()
+          .endControlFlow();
+    }
+
+    if (yieldEvery > 0) {
+      spec.addStatement("final int numOperations = ops.size()")
+          .addStatement("results = new $T[numOperations]", Clazz.CONTENT_PROVIDER_RESULT)
+          .beginControlFlow("for (int i = 0; i < numOperations; i++)")
+          .addStatement("final $T op = ops.get(i)", Clazz.CONTENT_PROVIDER_OPERATION)
+          .beginControlFlow("if (i > 0 && (i % $L == 0 || op.isYieldAllowed()))", yieldEvery);
+      if (sharded) {
+        // Notifications are kept until the batch ends, as other databases may not have yielded
+        spec.beginControlFlow("for ($T db : dbs)", Clazz.SQLITE_DATABASE)
+            .beginControlFlow("if (db != null)")
+            .addStatement("db.yieldIfContendedSafely()")
+            .endControlFlow()
+            .endControlFlow();
+      } else {
+        spec.beginControlFlow("if (db.yieldIfContendedSafely())")
+            .addStatement("notifications.flushBatch()")
+            .endControlFlow();
+      }
+      spec.endControlFlow()
+          .addStatement("results[i] = op.apply(this, results, i)")
+          .endControlFlow();
+    } else {
+      spec.addStatement("results = super.applyBatch(ops)");
+    }
+
+    if (sharded) {
+      spec.beginControlFlow("for ($T db : dbs)", Clazz.SQLITE_DATABASE)
+          .beginControlFlow("if (db != null)")
+          .addStatement("db.setTransactionSuccessful()")
+          .endControlFlow()
+          .endControlFlow()
+          .addStatement("successful = true")
+          .nextControlFlow("finally")
+          .addCode("// Notify only once the transactions committed, as ending them can fail\n")
+          .addStatement("boolean committed = false")
+          .beginControlFlow("try")
+          .beginControlFlow("for (int i = started - 1; i >= 0; i--)")
+          .beginControlFlow("if (dbs[i] != null)")
+          .addStatement("dbs[i].endTransaction()")
+          .endControlFlow()
+          .endControlFlow()
+          .addStatement("committed = successful")
+          .nextControlFlow("finally");
+    } else {
+      spec.addStatement("db.setTransactionSuccessful()")
+          .addStatement("successful = true")
+          .nextControlFlow("finally")
+          .addCode("// Notify only once the transaction committed, as ending it can fail\n")
+          .addStatement("boolean committed = false")
+          .beginControlFlow("try")
+          .addStatement("db.endTransaction()")
+          .addStatement("committed = successful")
+          .nextControlFlow("finally");
+    }
+
+    if (hasCacheableUris) {
+      spec.addStatement("queryCache.endBatch()");
+    }
+
+    spec.addStatement("notifications.endBatch(committed)")
+        .endControlFlow()
         .endControlFlow()
         .addStatement("return results");
 
@@ -658,7 +1155,7 @@ public class ContentProviderWriter {
         .addAnnotation(Override.class)
         .returns(String.class)
         .addParameter(Clazz.URI, "uri")
-        .beginControlFlow("switch(MATCHER.match(uri))");
+        .beginControlFlow("switch(match(uri))");
 
     for (UriContract uri : uris) {
       spec.beginControlFlow("case $L:", uri.name)
@@ -674,7 +1171,7 @@ public class ContentProviderWriter {
     return spec.build();
   }
 
-  private MethodSpec getQuerySpec() {
+  private void addQuerySpecs(TypeSpec.Builder contentResolver) {
     MethodSpec.Builder spec = MethodSpec.methodBuilder("query")
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
@@ -685,139 +1182,76 @@ public class ContentProviderWriter {
         .addParameter(ArrayTypeName.of(String.class), "selectionArgs")
         .addParameter(String.class, "sortOrder");
 
-    spec.addStatement("final $T db = database.getReadableDatabase()", Clazz.SQLITE_DATABASE);
-
-    spec.beginControlFlow("switch(MATCHER.match(uri))");
+    spec.beginControlFlow("switch(match(uri))");
 
+    List<MethodSpec> uriMethods = new ArrayList<>();
     for (UriContract uri : uris) {
       if (uri.allowQuery) {
+        String uriMethod = getUriMethodName("query", uri);
         spec.beginControlFlow("case $L:", uri.name)
-            .addStatement("$T builder = getBuilder($S)", Clazz.SELECTION_BUILDER,
-                uri.parent.getSimpleName().toString());
-
-        if (uri.defaultSort != null) {
-          spec.beginControlFlow("if (sortOrder == null)")
-              .addStatement("sortOrder = $S", uri.defaultSort)
-              .endControlFlow();
-        }
-
-        StringBuilder whereBuilder = new StringBuilder();
-        if (uri.contractType == UriContract.Type.INEXACT) {
-          for (int i = 0; i < uri.whereColumns.length; i++) {
-            String column = uri.whereColumns[i];
-            int pathSegment = uri.pathSegments[i];
-            whereBuilder.append(".where(\"")
-                .append(column)
-                .append("=?\" , uri.getPathSegments().get(")
-                .append(pathSegment)
-                .append("))\n");
-          }
-        }
-        for (String where : uri.where) {
-          whereBuilder.append(".where(\"").append(where).append("\")\n");
+            .addStatement("return $L(uri, projection, selection, selectionArgs, sortOrder)",
+                uriMethod)
+            .endControlFlow();
+
+        MethodSpec.Builder method = MethodSpec.methodBuilder(uriMethod)
+            .addModifiers(Modifier.PRIVATE)
+            .returns(Clazz.CURSOR)
+            .addParameter(Clazz.URI, "uri")
+            .addParameter(ArrayTypeName.of(String.class), "projection")
+            .addParameter(String.class, "selection")
+            .addParameter(ArrayTypeName.of(String.class), "selectionArgs")
+            .addParameter(String.class, "sortOrder");
+
+        boolean cacheable = uri.cacheable && hasCacheableUris;
+        if (cacheable) {
+          method.addStatement(
+              "final $T cacheKey = new $T(uri, projection, selection, selectionArgs, sortOrder)",
+              Clazz.QUERY_CACHE_KEY, Clazz.QUERY_CACHE_KEY)
+              .addStatement("final $T cached = queryCache.get(cacheKey)", Clazz.CURSOR)
+              .beginControlFlow("if (cached != null)")
+              .addCode(getSetNotificationUri(uri, "cached"))
+              .addStatement("return cached")
+              .endControlFlow()
+              .addStatement("final long[] tableVersions = queryCache.getVersions($L)",
+                  QueryCacheWriter.getTablesName(uri));
         }
-        whereBuilder.append(".where(selection, selectionArgs)\n");
 
-        ExecutableElement where = whereCalls.get(uri.path);
-        if (where != null) {
-          String parent = ((TypeElement) where.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = where.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = where.getParameters();
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else {
-              error(String.format("@Where does not support parameter %s", paramType.toString()));
-            }
-          }
+        method.addStatement("final $T db = $L.getReadableDatabase()", Clazz.SQLITE_DATABASE,
+            getDatabase(uri.shard))
+            .addStatement("final $T builder = $L(uri, selection, selectionArgs)",
+                Clazz.SELECTION_BUILDER, getUriMethodName("select", uri));
 
-          spec.addStatement("$T wheres = $L.$L($L)", ArrayTypeName.of(String.class), parent,
-              methodName, params.toString())
-              .beginControlFlow("for ($T where : wheres)", String.class)
-              .addStatement("builder.where(where)")
+        if (uri.defaultSort != null) {
+          method.beginControlFlow("if (sortOrder == null)")
+              .addStatement("sortOrder = $S", uri.defaultSort)
               .endControlFlow();
         }
 
-        if (uri.join != null) {
-          spec.addStatement("$T join = \" \" + $S", String.class, uri.join);
-        }
-
-        ExecutableElement joins = joinCalls.get(uri.path);
-        if (joins != null) {
-          String parent = ((TypeElement) joins.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = joins.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = joins.getParameters();
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else {
-              error(String.format("@Join does not support parameter %s", paramType.toString()));
-            }
-          }
-
-          if (uri.join == null) {
-            spec.addStatement("$T join = \"\"", String.class);
-          }
-
-          spec.addStatement("$T joins = $L.$L($L)", ArrayTypeName.of(String.class), parent,
-              methodName, params.toString())
-              .beginControlFlow("for ($T j : joins)", String.class)
-              .addStatement("join += \" \"")
-              .addStatement("join += j")
-              .endControlFlow();
-        }
+        method.addStatement("final String groupBy = $S", uri.groupBy)
+            .addStatement("final String having = $S", uri.having);
 
-        if (uri.join != null || joins != null) {
-          spec.addStatement("$T table = $S + join", String.class, uri.table);
+        if (isPaged(uri)) {
+          method.addStatement(
+              "final String limit = uri.getQueryParameter($T.QUERY_PARAMETER_LIMIT)",
+              Clazz.PAGED_QUERY);
         } else {
-          spec.addStatement("$T table = $S", String.class, uri.table);
+          method.addStatement("final String limit = $S", uri.limit);
         }
 
-        spec.addStatement("final String groupBy = $S", uri.groupBy)
-            .addStatement("final String having = $S", uri.having)
-            .addStatement("final String limit = $S", uri.limit);
-
-        // TODO: The whereBuilder part is kind of gross
-        spec.addStatement(
-            "$T cursor = builder.table(table)\n$L.query(db, projection, groupBy, having, sortOrder, limit)",
-            Clazz.CURSOR, whereBuilder.toString());
-
-        Element notifyUri = notificationUris.get(uri.path);
-        if (notifyUri != null) {
-          String parent =
-              ((TypeElement) notifyUri.getEnclosingElement()).getQualifiedName().toString();
-          String uriName = notifyUri.getSimpleName().toString();
-          spec.addStatement("cursor.setNotificationUri(getContext().getContentResolver(), $L)",
-              parent + "." + uriName);
-        } else {
-          spec.addStatement("cursor.setNotificationUri(getContext().getContentResolver(), uri)");
+        method.addStatement(
+            "$T cursor = builder.query(db, projection, groupBy, having, sortOrder, limit)",
+            Clazz.CURSOR);
+        method.addStatement("builder.recycle()");
+
+        if (cacheable) {
+          method.addStatement("cursor = queryCache.put(cacheKey, $L, tableVersions, cursor)",
+              QueryCacheWriter.getTablesName(uri));
         }
 
-        spec.addStatement("return cursor").endControlFlow();
+        method.addCode(getSetNotificationUri(uri, "cursor"))
+            .addStatement("return cursor");
+        uriMethods.add(method.build());
+        uriMethods.add(getSelectSpec(uri));
       }
     }
 
@@ -826,69 +1260,127 @@ public class ContentProviderWriter {
         .endControlFlow()
         .endControlFlow();
 
-    return spec.build();
+    contentResolver.addMethod(spec.build()).addMethods(uriMethods);
+  }
+
+  /**
+   * The method building the query of {@code uri}, with everything but the projection, sort order
+   * and limit. Used by the query method, and to build the queries prepared by the prewarmer.
+   */
+  private MethodSpec getSelectSpec(UriContract uri) {
+    MethodSpec.Builder method = MethodSpec.methodBuilder(getUriMethodName("select", uri))
+        .addModifiers(Modifier.PRIVATE)
+        .returns(Clazz.SELECTION_BUILDER)
+        .addParameter(Clazz.URI, "uri")
+        .addParameter(String.class, "selection")
+        .addParameter(ArrayTypeName.of(String.class), "selectionArgs")
+        .addStatement("final $T builder = getBuilder($S)", Clazz.SELECTION_BUILDER,
+            uri.parent.getSimpleName().toString());
+    addWhereKeys(method, uri);
+
+    addStaticWhere(method, uri);
+    method.addStatement("builder.where(selection, selectionArgs)");
+
+    ExecutableElement where = whereCalls.get(uri.path);
+    if (where != null) {
+      method.addStatement("$T wheres = $L", ArrayTypeName.of(String.class),
+          getCall(where, "@Where"))
+          .beginControlFlow("for ($T where : wheres)", String.class)
+          .addStatement("builder.where(where)")
+          .endControlFlow();
+    }
+
+    ExecutableElement joins = joinCalls.get(uri.path);
+    if (joins != null) {
+      if (uri.join != null) {
+        method.addStatement("final $T table = new $T($L)", StringBuilder.class,
+            StringBuilder.class, getStaticTableName(uri));
+      } else {
+        method.addStatement("final $T table = new $T($S)", StringBuilder.class,
+            StringBuilder.class, uri.table);
+      }
+
+      method.addStatement("$T joins = $L", ArrayTypeName.of(String.class),
+          getCall(joins, "@Join"))
+          .beginControlFlow("for ($T j : joins)", String.class)
+          .addStatement("table.append(' ').append(j)")
+          .endControlFlow()
+          .addStatement("builder.table(table.toString())");
+    } else if (uri.join != null) {
+      method.addStatement("builder.table($L)", getStaticTableName(uri));
+    } else {
+      method.addStatement("builder.table($S)", uri.table);
+    }
+
+    return method.addStatement("return builder").build();
   }
 
-  private MethodSpec getInsertSpec() {
+  private void addInsertSpecs(TypeSpec.Builder contentResolver) {
     MethodSpec.Builder spec = MethodSpec.methodBuilder("insert")
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
         .returns(Clazz.URI)
         .addParameter(Clazz.URI, "uri")
         .addParameter(Clazz.CONTENT_VALUES, "values")
-        .addStatement("final $T db = database.getWritableDatabase()", Clazz.SQLITE_DATABASE)
-        .beginControlFlow("switch(MATCHER.match(uri))");
+        .beginControlFlow("switch(match(uri))");
 
+    List<MethodSpec> uriMethods = new ArrayList<>();
     for (UriContract uri : uris) {
       if (uri.allowInsert) {
+        String uriMethod = getUriMethodName("insert", uri);
         spec.beginControlFlow("case $L:", uri.name)
-            .addStatement("final $T id = db.insertOrThrow($S, null, values)", long.class,
-                uri.table);
+            .addStatement("return $L(uri, values)", uriMethod)
+            .endControlFlow();
+
+        MethodSpec.Builder method = MethodSpec.methodBuilder(uriMethod)
+            .addModifiers(Modifier.PRIVATE)
+            .returns(Clazz.URI)
+            .addParameter(Clazz.URI, "uri")
+            .addParameter(Clazz.CONTENT_VALUES, "values")
+            .addStatement("final $T db = $L.getWritableDatabase()", Clazz.SQLITE_DATABASE,
+                getDatabase(uri.shard));
+
+        if (uri.conflictAlgorithm == null && uri.upsertColumns == null) {
+          method.addStatement("final $T id = db.insertOrThrow($S, null, values)", long.class,
+              uri.table);
+        } else {
+          method.addStatement("final $T id", long.class)
+              .addStatement("final $T inserter = $L", Clazz.BULK_INSERTER, newBulkInserter(uri))
+              .beginControlFlow("try")
+              .addStatement("id = inserter.insert(values)")
+              .nextControlFlow("finally")
+              .addStatement("inserter.close()")
+              .endControlFlow();
+
+          if (ConflictResolutionType.IGNORE.name().equals(uri.conflictAlgorithm)) {
+            method.beginControlFlow("if (id == -1)")
+                .addStatement("return null")
+                .endControlFlow();
+          }
+        }
+        addQueryCacheWrite(method, uri.table);
 
         if ((uri.path != null && notifyInsert.containsKey(uri.path))
             || defaultNotifyInsert != null) {
           CodeBlock notifyInsert = getNotifyInsert(uri);
-          spec.addCode(notifyInsert);
-        } else {
-          spec.addStatement("getContext().getContentResolver().notifyChange(uri, null)");
+          method.addCode(notifyInsert);
+        } else if (!notifyDependentUris || !uri.allowQuery) {
+          method.addStatement("notifications.notifyChange(uri)");
+        }
+        if (notifyDependentUris) {
+          dependentUris.addNotify(method, uri);
         }
 
         ExecutableElement insertUri = insertUris.get(uri.path);
         if (insertUri != null) {
-          String parent =
-              ((TypeElement) insertUri.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = insertUri.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = insertUri.getParameters();
-
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else if (Clazz.CONTENT_VALUES.equals(ClassName.get(paramType))) {
-              params.append("values");
-            } else {
-              error(String.format("@NotifyInsert does not support parameter %s",
-                  paramType.toString()));
-            }
-          }
-
-          spec.addStatement("return $L.$L($L)", parent, methodName, params.toString());
+          Map<TypeName, String> arguments = new HashMap<>();
+          arguments.put(Clazz.CONTENT_VALUES, "values");
+          method.addStatement("return $L", getCall(insertUri, "@InsertUri", arguments, NO_KEYS));
         } else {
-          spec.addStatement("return $T.withAppendedId(uri, id)", Clazz.CONTENT_URIS);
+          method.addStatement("return $T.withAppendedId(uri, id)", Clazz.CONTENT_URIS);
         }
 
-        spec.endControlFlow();
+        uriMethods.add(method.build());
       }
     }
 
@@ -897,10 +1389,10 @@ public class ContentProviderWriter {
         .endControlFlow()
         .endControlFlow();
 
-    return spec.build();
+    contentResolver.addMethod(spec.build()).addMethods(uriMethods);
   }
 
-  private MethodSpec getUpdateSpec() {
+  private void addUpdateSpecs(TypeSpec.Builder contentResolver) {
     MethodSpec.Builder spec = MethodSpec.methodBuilder("update")
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
@@ -910,61 +1402,43 @@ public class ContentProviderWriter {
         .addParameter(String.class, "where")
         .addParameter(ArrayTypeName.of(String.class), "whereArgs");
 
-    spec.addStatement("final $T db = database.getWritableDatabase()", Clazz.SQLITE_DATABASE)
-        .beginControlFlow("switch(MATCHER.match(uri))");
+    spec.beginControlFlow("switch(match(uri))");
 
+    List<MethodSpec> uriMethods = new ArrayList<>();
     for (UriContract uri : uris) {
       if (uri.allowUpdate) {
+        String uriMethod = getUriMethodName("update", uri);
         spec.beginControlFlow("case $L:", uri.name)
+            .addStatement("return $L(uri, values, where, whereArgs)", uriMethod)
+            .endControlFlow();
+
+        MethodSpec.Builder method = MethodSpec.methodBuilder(uriMethod)
+            .addModifiers(Modifier.PRIVATE)
+            .returns(int.class)
+            .addParameter(Clazz.URI, "uri")
+            .addParameter(Clazz.CONTENT_VALUES, "values")
+            .addParameter(String.class, "where")
+            .addParameter(ArrayTypeName.of(String.class), "whereArgs")
+            .addStatement("final $T db = $L.getWritableDatabase()", Clazz.SQLITE_DATABASE,
+                getDatabase(uri.shard))
             .addStatement("$T builder = getBuilder($S)", Clazz.SELECTION_BUILDER,
                 uri.parent.getSimpleName().toString());
+        addWhereKeys(method, uri);
 
-        if (uri.contractType == UriContract.Type.INEXACT) {
-          for (int i = 0; i < uri.whereColumns.length; i++) {
-            String column = uri.whereColumns[i];
-            int pathSegment = uri.pathSegments[i];
-            spec.addStatement("builder.where(\"$L=?\", uri.getPathSegments().get($L))", column,
-                pathSegment);
-          }
-        }
-        for (String where : uri.where) {
-          spec.addStatement("builder.where($S)", where);
-        }
-        spec.addStatement("builder.where(where, whereArgs)");
+        addStaticWhere(method, uri);
+        method.addStatement("builder.where(where, whereArgs)");
 
         ExecutableElement where = whereCalls.get(uri.path);
         if (where != null) {
-          String parent = ((TypeElement) where.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = where.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = where.getParameters();
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else {
-              error(String.format("@Where does not support parameter %s", paramType.toString()));
-            }
-          }
-
-          spec.addStatement("$T wheres = $L.$L($L)", ArrayTypeName.of(String.class), parent,
-              methodName, params.toString())
+          method.addStatement("$T wheres = $L", ArrayTypeName.of(String.class),
+              getCall(where, "@Where"))
               .beginControlFlow("for ($T updateWhere : wheres)", String.class)
               .addStatement("builder.where(updateWhere)")
               .endControlFlow();
         }
 
         boolean hasNotifyUris = false;
+        String[] keyColumns = {};
         if ((uri.path != null && notifyUpdate.containsKey(uri.path))
             || defaultNotifyUpdate != null) {
           hasNotifyUris = true;
@@ -972,55 +1446,45 @@ public class ContentProviderWriter {
           if (notifyMethod == null) {
             notifyMethod = defaultNotifyUpdate;
           }
-
-          String parent =
-              ((TypeElement) notifyMethod.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = notifyMethod.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = notifyMethod.getParameters();
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            VariableElement variableElement = param;
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else if (Clazz.CONTENT_VALUES.equals(ClassName.get(paramType))) {
-              params.append("values");
-            } else if (ClassName.get(String.class).equals(ClassName.get(paramType))) {
-              params.append("builder.getSelection()");
-            } else if ("java.lang.String[]".equals(variableElement.asType().toString())) {
-              params.append("builder.getSelectionArgs()");
-            } else {
-              error(String.format("@NotifyUpdate does not support parameter %s",
-                  paramType.toString()));
-            }
+          keyColumns = notifyMethod.getAnnotation(NotifyUpdate.class).keyColumns();
+
+          Map<TypeName, String> arguments = new HashMap<>();
+          arguments.put(Clazz.CONTENT_VALUES, "values");
+          arguments.put(ClassName.get(String.class), "builder.getSelection()");
+          arguments.put(ArrayTypeName.of(String.class), "builder.getSelectionArgs()");
+          CodeBlock call = getCall(notifyMethod, "@NotifyUpdate", arguments, keyColumns);
+
+          if (keyColumns.length > 0) {
+            addReadKeys(method, uri, keyColumns);
+            method.addStatement("notifyUris = $L", call)
+                .addStatement("count = builder.update(db, values)");
+            addEndReadKeys(method);
+          } else {
+            method.addStatement("$T notifyUris = $L", ArrayTypeName.of(Clazz.URI), call);
           }
-
-          spec.addStatement("$T notifyUris = $L.$L($L)", ArrayTypeName.of(Clazz.URI), parent,
-              methodName, params.toString());
         }
 
-        spec.addStatement("final $T count = builder.table($S)\n.update(db, values)", int.class,
-            uri.table).beginControlFlow("if (count > 0)");
+        if (keyColumns.length == 0) {
+          method.addStatement("final $T count = builder.table($S)\n.update(db, values)", int.class,
+              uri.table);
+        }
+        method.addStatement("builder.recycle()")
+            .beginControlFlow("if (count > 0)");
+        addQueryCacheWrite(method, uri.table);
 
         if (hasNotifyUris) {
-          spec.beginControlFlow("for ($T notifyUri : notifyUris)", Clazz.URI)
-              .addStatement("getContext().getContentResolver().notifyChange(notifyUri, null)")
+          method.beginControlFlow("for ($T notifyUri : notifyUris)", Clazz.URI)
+              .addStatement("notifications.notifyChange(notifyUri)")
               .endControlFlow();
-        } else {
-          spec.addStatement("getContext().getContentResolver().notifyChange(uri, null)");
+        } else if (!notifyDependentUris || !uri.allowQuery) {
+          method.addStatement("notifications.notifyChange(uri)");
+        }
+        if (notifyDependentUris) {
+          dependentUris.addNotify(method, uri);
         }
 
-        spec.endControlFlow().addStatement("return count").endControlFlow();
+        method.endControlFlow().addStatement("return count");
+        uriMethods.add(method.build());
       }
     }
 
@@ -1029,10 +1493,10 @@ public class ContentProviderWriter {
         .endControlFlow()
         .endControlFlow();
 
-    return spec.build();
+    contentResolver.addMethod(spec.build()).addMethods(uriMethods);
   }
 
-  private MethodSpec getDeleteSpec() {
+  private void addDeleteSpecs(TypeSpec.Builder contentResolver) {
     MethodSpec.Builder spec = MethodSpec.methodBuilder("delete")
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
@@ -1040,61 +1504,42 @@ public class ContentProviderWriter {
         .addParameter(Clazz.URI, "uri")
         .addParameter(String.class, "where")
         .addParameter(ArrayTypeName.of(String.class), "whereArgs")
-        .addStatement("final $T db = database.getWritableDatabase()", Clazz.SQLITE_DATABASE)
-        .beginControlFlow("switch(MATCHER.match(uri))");
+        .beginControlFlow("switch(match(uri))");
 
+    List<MethodSpec> uriMethods = new ArrayList<>();
     for (UriContract uri : uris) {
       if (uri.allowDelete) {
+        String uriMethod = getUriMethodName("delete", uri);
         spec.beginControlFlow("case $L:", uri.name)
+            .addStatement("return $L(uri, where, whereArgs)", uriMethod)
+            .endControlFlow();
+
+        MethodSpec.Builder method = MethodSpec.methodBuilder(uriMethod)
+            .addModifiers(Modifier.PRIVATE)
+            .returns(int.class)
+            .addParameter(Clazz.URI, "uri")
+            .addParameter(String.class, "where")
+            .addParameter(ArrayTypeName.of(String.class), "whereArgs")
+            .addStatement("final $T db = $L.getWritableDatabase()", Clazz.SQLITE_DATABASE,
+                getDatabase(uri.shard))
             .addStatement("$T builder = getBuilder($S)", Clazz.SELECTION_BUILDER,
                 uri.parent.getSimpleName().toString());
+        addWhereKeys(method, uri);
 
-        if (uri.contractType == UriContract.Type.INEXACT) {
-          for (int i = 0; i < uri.whereColumns.length; i++) {
-            String column = uri.whereColumns[i];
-            int pathSegment = uri.pathSegments[i];
-            spec.addStatement("builder.where(\"$L=?\", uri.getPathSegments().get($L))", column,
-                pathSegment);
-          }
-        }
-        for (String where : uri.where) {
-          spec.addStatement("builder.where($S)", where);
-        }
-        spec.addStatement("builder.where(where, whereArgs)");
+        addStaticWhere(method, uri);
+        method.addStatement("builder.where(where, whereArgs)");
 
         ExecutableElement where = whereCalls.get(uri.path);
         if (where != null) {
-          String parent = ((TypeElement) where.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = where.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = where.getParameters();
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else {
-              error(String.format("@Where does not support parameter %s", paramType.toString()));
-            }
-          }
-
-          spec.addStatement("$T wheres = $L.$L($L)", ArrayTypeName.of(String.class), parent,
-              methodName, params.toString());
-          spec.beginControlFlow("for ($T deleteWhere : wheres)", String.class)
+          method.addStatement("$T wheres = $L", ArrayTypeName.of(String.class),
+              getCall(where, "@Where"));
+          method.beginControlFlow("for ($T deleteWhere : wheres)", String.class)
               .addStatement("builder.where(deleteWhere)")
               .endControlFlow();
         }
 
         boolean hasNotifyUris = false;
+        String[] keyColumns = {};
         if ((uri.path != null && notifyDelete.containsKey(uri.path))
             || defaultNotifyDelete != null) {
           hasNotifyUris = true;
@@ -1103,51 +1548,42 @@ public class ContentProviderWriter {
           if (notifyMethod == null) {
             notifyMethod = defaultNotifyDelete;
           }
-
-          String parent =
-              ((TypeElement) notifyMethod.getEnclosingElement()).getQualifiedName().toString();
-          String methodName = notifyMethod.getSimpleName().toString();
-
-          List<? extends VariableElement> parameters = notifyMethod.getParameters();
-          StringBuilder params = new StringBuilder();
-          boolean first = true;
-          for (VariableElement param : parameters) {
-            if (first) {
-              first = false;
-            } else {
-              params.append(", ");
-            }
-
-            TypeMirror paramType = param.asType();
-            if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-              params.append("getContext()");
-            } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-              params.append("uri");
-            } else if (ClassName.get(String.class).equals(ClassName.get(paramType))) {
-              params.append("builder.getSelection()");
-            } else if (ArrayTypeName.get(String.class).equals(ArrayTypeName.get(paramType))) {
-              params.append("builder.getSelectionArgs()");
-            } else {
-              error(String.format("@NotifyDelete does not support parameter %s",
-                  paramType.toString()));
-            }
+          keyColumns = notifyMethod.getAnnotation(NotifyDelete.class).keyColumns();
+
+          Map<TypeName, String> arguments = new HashMap<>();
+          arguments.put(ClassName.get(String.class), "builder.getSelection()");
+          arguments.put(ArrayTypeName.of(String.class), "builder.getSelectionArgs()");
+          CodeBlock call = getCall(notifyMethod, "@NotifyDelete", arguments, keyColumns);
+
+          if (keyColumns.length > 0) {
+            addReadKeys(method, uri, keyColumns);
+            method.addStatement("notifyUris = $L", call)
+                .addStatement("count = builder.delete(db)");
+            addEndReadKeys(method);
+          } else {
+            method.addStatement("$T notifyUris = $L", ArrayTypeName.of(Clazz.URI), call);
           }
-
-          spec.addStatement("$T notifyUris = $L.$L($L)", ArrayTypeName.of(Clazz.URI), parent,
-              methodName, params.toString());
         }
 
-        spec.addStatement("final int count = builder\n.table($S)\n.delete(db)", uri.table);
+        if (keyColumns.length == 0) {
+          method.addStatement("final int count = builder\n.table($S)\n.delete(db)", uri.table);
+        }
+        method.addStatement("builder.recycle()");
+        addQueryCacheWrite(method, uri.table);
 
         if (hasNotifyUris) {
-          spec.beginControlFlow("for ($T notifyUri : notifyUris)", Clazz.URI)
-              .addStatement("getContext().getContentResolver().notifyChange(notifyUri, null)")
+          method.beginControlFlow("for ($T notifyUri : notifyUris)", Clazz.URI)
+              .addStatement("notifications.notifyChange(notifyUri)")
               .endControlFlow();
-        } else {
-          spec.addStatement("getContext().getContentResolver().notifyChange(uri, null)");
+        } else if (!notifyDependentUris || !uri.allowQuery) {
+          method.addStatement("notifications.notifyChange(uri)");
+        }
+        if (notifyDependentUris) {
+          dependentUris.addNotify(method, uri);
         }
 
-        spec.addStatement("return count").endControlFlow();
+        method.addStatement("return count");
+        uriMethods.add(method.build());
       }
     }
 
@@ -1156,53 +1592,182 @@ public class ContentProviderWriter {
         .endControlFlow()
         .endControlFlow();
 
-    return spec.build();
+    contentResolver.addMethod(spec.build()).addMethods(uriMethods);
   }
 
-  private CodeBlock getNotifyInsert(UriContract uri) {
-    ExecutableElement notifyMethod = notifyInsert.get(uri.path);
-    if (notifyMethod == null) {
-      notifyMethod = defaultNotifyInsert;
-    }
-
-    String parent =
-        ((TypeElement) notifyMethod.getEnclosingElement()).getQualifiedName().toString();
-    String methodName = notifyMethod.getSimpleName().toString();
-
-    List<? extends VariableElement> parameters = notifyMethod.getParameters();
+  /**
+   * A call to a {@code @Where}, {@code @Join}, {@code @InsertUri} or notify method from a generated
+   * method. Context and Uri parameters are passed by every generated method, other parameters are
+   * passed the expression given for their type in {@code arguments}. The long[] parameters of a
+   * notify method with {@code keyColumns} are passed the keys read for each column, in order.
+   */
+  private CodeBlock getCall(ExecutableElement method, String annotation,
+      Map<TypeName, String> arguments, String[] keyColumns) {
     StringBuilder params = new StringBuilder();
+    int keyIndex = 0;
     boolean first = true;
-    for (VariableElement param : parameters) {
+    for (VariableElement param : method.getParameters()) {
       if (first) {
         first = false;
       } else {
         params.append(", ");
       }
 
-      TypeMirror paramType = param.asType();
-      if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
+      TypeName paramType = TypeName.get(param.asType());
+      if (Clazz.CONTEXT.equals(paramType)) {
         params.append("getContext()");
-      } else if (Clazz.URI.equals(ClassName.get(paramType))) {
+      } else if (Clazz.URI.equals(paramType)) {
         params.append("uri");
-      } else if (Clazz.CONTENT_VALUES.equals(ClassName.get(paramType))) {
-        params.append("values");
-      } else if (TypeName.LONG.equals(TypeName.get(paramType))) {
-        params.append("id");
-      } else if (ClassName.get(String.class).equals(ClassName.get(paramType))) {
-        params.append("where");
-      } else if (ArrayTypeName.get(String.class).equals(ArrayTypeName.get(paramType))) {
-        params.append("whereArgs");
+      } else if (arguments.containsKey(paramType)) {
+        params.append(arguments.get(paramType));
+      } else if (KEYS.equals(paramType) && keyIndex < keyColumns.length) {
+        params.append("keys[").append(keyIndex++).append("]");
+      } else {
+        error(String.format("%s does not support parameter %s", annotation, param.asType()));
+      }
+    }
+
+    if (keyIndex < keyColumns.length) {
+      error(String.format("%s declares %d keyColumns, but only has %d long[] parameters",
+          getFullyQualified(method), keyColumns.length, keyIndex));
+    }
+
+    String parent = ((TypeElement) method.getEnclosingElement()).getQualifiedName().toString();
+    return CodeBlock.of("$L.$L($L)", parent, method.getSimpleName(), params.toString());
+  }
+
+  private CodeBlock getCall(ExecutableElement method, String annotation) {
+    return getCall(method, annotation, Collections.<TypeName, String>emptyMap(), NO_KEYS);
+  }
+
+  /**
+   * Starts a transaction, and reads the {@code keyColumns} of the rows about to be written into
+   * {@code keys}. The notify method and the write are then added, and the transaction ended with
+   * {@link #addEndReadKeys(MethodSpec.Builder)}.
+   */
+  private void addReadKeys(MethodSpec.Builder method, UriContract uri, String[] keyColumns) {
+    CodeBlock.Builder columns = CodeBlock.builder();
+    for (int i = 0; i < keyColumns.length; i++) {
+      columns.add(i == 0 ? "$S" : ", $S", keyColumns[i]);
+    }
+
+    method.addStatement("final $T notifyUris", ArrayTypeName.of(Clazz.URI))
+        .addStatement("final int count")
+        .addStatement("db.beginTransaction()")
+        .beginControlFlow("try")
+        .addStatement("final long[][] keys = builder.table($S).queryKeys(db, $L)", uri.table,
+            columns.build());
+  }
+
+  private void addEndReadKeys(MethodSpec.Builder method) {
+    method.addStatement("db.setTransactionSuccessful()")
+        .nextControlFlow("finally")
+        .addStatement("db.endTransaction()")
+        .endControlFlow();
+  }
+
+  /** Restricts the builder to the keys appended to the URI, if it has a key column. */
+  private static void addWhereKeys(MethodSpec.Builder method, UriContract uri) {
+    if (uri.keyColumn != null) {
+      method.addStatement("final long[] uriKeys = $T.getKeys(uri)", Clazz.KEYS)
+          .beginControlFlow("if (uriKeys != null)")
+          .addStatement("builder.whereIn($S, uriKeys)", uri.keyColumn)
+          .endControlFlow();
+    }
+  }
+
+  /** Creates a BulkInserter applying the conflict policy of {@code uri}. */
+  private static CodeBlock newBulkInserter(UriContract uri) {
+    if (uri.upsertColumns != null) {
+      CodeBlock.Builder columns = CodeBlock.builder();
+      for (int i = 0; i < uri.upsertColumns.length; i++) {
+        columns.add(i == 0 ? "$S" : ", $S", uri.upsertColumns[i]);
+      }
+      return CodeBlock.of("new $T(db, $S, null, new String[] {$L})", Clazz.BULK_INSERTER,
+          uri.table, columns.build());
+    }
+
+    if (uri.conflictAlgorithm != null) {
+      return CodeBlock.of("new $T(db, $S, $S, null)", Clazz.BULK_INSERTER, uri.table,
+          uri.conflictAlgorithm);
+    }
+
+    return CodeBlock.of("new $T(db, $S)", Clazz.BULK_INSERTER, uri.table);
+  }
+
+  /** Name of the method handling {@code operation} for the URI, e.g. queryListsLists. */
+  static String getUriMethodName(String operation, UriContract uri) {
+    return operation + CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, uri.name);
+  }
+
+  /** Whether a {@link Clazz#PAGED_QUERY} is generated for the URI. */
+  boolean isPaged(UriContract uri) {
+    // Keyset pagination needs an integer key, and can not page grouped or limited results
+    TableWriter table = tables.get(uri.table);
+    return uri.allowQuery
+        && !uri.type.startsWith("vnd.android.cursor.item")
+        && table != null
+        && table.integerPrimaryKey != null
+        && uri.groupBy == null
+        && uri.having == null
+        && uri.limit == null;
+  }
+
+  private void addPagedQuerySpecs(TypeSpec.Builder contentResolver) {
+    for (UriContract uri : uris) {
+      if (!isPaged(uri)) {
+        continue;
+      }
+
+      TableWriter table = tables.get(uri.table);
+      String keyColumn = table.integerPrimaryKey;
+      if (uri.join != null || joinCalls.containsKey(uri.path)) {
+        keyColumn = uri.table + "." + keyColumn;
+      }
+
+      String methodName =
+          "page" + CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, uri.name);
+      MethodSpec.Builder spec = MethodSpec.methodBuilder(methodName)
+          .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+          .returns(Clazz.PAGED_QUERY)
+          .addParameter(Clazz.CONTENT_RESOLVER, "resolver");
+
+      String uriParam;
+      if (uri.contractType == UriContract.Type.EXACT) {
+        uriParam = uri.classQualifiedName + "." + uri.fieldName;
       } else {
-        error(String.format("@NotifyInsert does not support parameter %s",
-            paramType.toString()));
+        spec.addParameter(Clazz.URI, "uri");
+        uriParam = "uri";
       }
+
+      spec.addParameter(ArrayTypeName.of(String.class), "projection")
+          .addParameter(String.class, "selection")
+          .addParameter(ArrayTypeName.of(String.class), "selectionArgs")
+          .addParameter(int.class, "pageSize")
+          .addStatement("return new $T(resolver, $L, projection, selection, selectionArgs, $S, "
+              + "pageSize)", Clazz.PAGED_QUERY, uriParam, keyColumn);
+
+      contentResolver.addMethod(spec.build());
+    }
+  }
+
+  private CodeBlock getNotifyInsert(UriContract uri) {
+    ExecutableElement notifyMethod = notifyInsert.get(uri.path);
+    if (notifyMethod == null) {
+      notifyMethod = defaultNotifyInsert;
     }
 
+    Map<TypeName, String> arguments = new HashMap<>();
+    arguments.put(Clazz.CONTENT_VALUES, "values");
+    arguments.put(TypeName.LONG, "id");
+    arguments.put(ClassName.get(String.class), "where");
+    arguments.put(ArrayTypeName.of(String.class), "whereArgs");
+
     return CodeBlock.builder()
-        .addStatement("$T[] notifyUris = $L.$L($L)", Clazz.URI, parent, methodName,
-            params.toString())
+        .addStatement("$T[] notifyUris = $L", Clazz.URI,
+            getCall(notifyMethod, "@NotifyInsert", arguments, NO_KEYS))
         .beginControlFlow("for ($T notifyUri : notifyUris)", Clazz.URI)
-        .addStatement("getContext().getContentResolver().notifyChange(notifyUri, null)")
+        .addStatement("notifications.notifyChange(notifyUri)")
         .endControlFlow()
         .build();
   }
@@ -1213,44 +1778,33 @@ public class ContentProviderWriter {
       notifyMethod = defaultNotifyBulkInsert;
     }
 
-    String parent =
-        ((TypeElement) notifyMethod.getEnclosingElement()).getQualifiedName().toString();
-    String methodName = notifyMethod.getSimpleName().toString();
-
-    List<? extends VariableElement> parameters = notifyMethod.getParameters();
-    StringBuilder params = new StringBuilder();
-    boolean first = true;
-    for (VariableElement param : parameters) {
-      if (first) {
-        first = false;
-      } else {
-        params.append(", ");
-      }
-
-      TypeMirror paramType = param.asType();
-      if (Clazz.CONTEXT.equals(ClassName.get(paramType))) {
-        params.append("getContext()");
-      } else if (Clazz.URI.equals(ClassName.get(paramType))) {
-        params.append("uri");
-      } else if (ArrayTypeName.of(Clazz.CONTENT_VALUES).equals(ArrayTypeName.get(paramType))) {
-        params.append("values");
-      } else if (ArrayTypeName.of(ArrayTypeName.LONG).equals(ArrayTypeName.get(paramType))) {
-        params.append("ids");
-      } else {
-        error(String.format("@NotifyBulkInsert does not support parameter %s",
-            paramType.toString()));
-      }
-    }
+    Map<TypeName, String> arguments = new HashMap<>();
+    arguments.put(ArrayTypeName.of(Clazz.CONTENT_VALUES), "values");
+    arguments.put(ArrayTypeName.of(KEYS), "ids");
 
     return CodeBlock.builder()
-        .addStatement("$T[] notifyUris = $L.$L($L)", Clazz.URI, parent, methodName,
-            params.toString())
+        .addStatement("$T[] notifyUris = $L", Clazz.URI,
+            getCall(notifyMethod, "@NotifyBulkInsert", arguments, NO_KEYS))
         .beginControlFlow("for ($T notifyUri : notifyUris)", Clazz.URI)
-        .addStatement("getContext().getContentResolver().notifyChange(notifyUri, null)")
+        .addStatement("notifications.notifyChange(notifyUri)")
         .endControlFlow()
         .build();
   }
 
+  /** The provider, the database, and the elements its tables are declared by. */
+  private Element[] getOriginatingElements() {
+    List<Element> elements = new ArrayList<>();
+    elements.add(provider);
+    for (Shard shard : shards.values()) {
+      elements.add(shard.database);
+    }
+    for (TableWriter table : tables.values()) {
+      elements.addAll(table.getOriginatingElements());
+    }
+
+    return elements.toArray(new Element[0]);
+  }
+
   private String getFileName() {
     return outPackage + "." + providerName;
   }
@@ -1265,6 +1819,69 @@ public class ContentProviderWriter {
     return parent + "." + elm;
   }
 
+  /**
+   * Fails if the estimated bytecode size of a generated method is larger than the
+   * {@link #OPTION_MAX_METHOD_SIZE} option. The size is only known once javac has compiled the
+   * method, so it is estimated from the number of statements.
+   */
+  private void checkMethodSizes(TypeSpec typeSpec) {
+    String option = processingEnv.getOptions().get(OPTION_MAX_METHOD_SIZE);
+    if (option == null) {
+      return;
+    }
+
+    int maxSize;
+    try {
+      maxSize = Integer.parseInt(option);
+    } catch (NumberFormatException e) {
+      error("Invalid value " + option + " for " + OPTION_MAX_METHOD_SIZE);
+      return;
+    }
+
+    for (MethodSpec method : typeSpec.methodSpecs) {
+      int size = countStatements(method.code.toString()) * BYTES_PER_STATEMENT;
+      if (size > maxSize) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, String.format(
+            "%s.%s is estimated at %d bytes of bytecode, more than the %d allowed by %s",
+            providerName, method.name, size, maxSize, OPTION_MAX_METHOD_SIZE), provider);
+      }
+    }
+  }
+
+  /**
+   * Counts the statements and blocks in generated code by their {@code ;} and <code>{</code>,
+   * skipping string and character literals and comments.
+   */
+  static int countStatements(String code) {
+    int statements = 0;
+    int length = code.length();
+    for (int i = 0; i < length; i++) {
+      char c = code.charAt(i);
+      if (c == '"' || c == '\'') {
+        // Skip to the closing quote, stepping over escaped characters
+        for (i++; i < length && code.charAt(i) != c; i++) {
+          if (code.charAt(i) == '\\') {
+            i++;
+          }
+        }
+      } else if (c == '/' && i + 1 < length && code.charAt(i + 1) == '/') {
+        i = code.indexOf('\n', i);
+        if (i == -1) {
+          break;
+        }
+      } else if (c == '/' && i + 1 < length && code.charAt(i + 1) == '*') {
+        i = code.indexOf("*/", i + 2);
+        if (i == -1) {
+          break;
+        }
+        i++;
+      } else if (c == ';' || c == '{') {
+        statements++;
+      }
+    }
+    return statements;
+  }
+
   private void error(String error) {
     processingEnv.getMessager().printMessage(Kind.ERROR, error);
   }
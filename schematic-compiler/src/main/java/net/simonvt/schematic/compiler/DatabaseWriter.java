@@ -29,6 +29,7 @@ import java.util.List;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -63,6 +64,8 @@ public class DatabaseWriter {
 
   List<VariableElement> execOnCreate = new ArrayList<>();
 
+  List<String> indexes = new ArrayList<>();
+
   ExecutableElement onCreate;
 
   ExecutableElement onUpgrade;
@@ -71,6 +74,8 @@ public class DatabaseWriter {
 
   int version;
 
+  Database annotation;
+
   String outPackage;
 
   public DatabaseWriter(ProcessingEnvironment env, Elements elements, Element database) {
@@ -82,6 +87,7 @@ public class DatabaseWriter {
     String databaseSchematicName = database.getSimpleName().toString();
 
     Database db = database.getAnnotation(Database.class);
+    this.annotation = db;
     this.version = db.version();
 
     this.className = db.className();
@@ -109,50 +115,63 @@ public class DatabaseWriter {
     List<? extends Element> enclosedElements = element.getEnclosedElements();
 
     for (Element enclosedElement : enclosedElements) {
-      findAnnotations(enclosedElement);
-
-      Table table = enclosedElement.getAnnotation(Table.class);
-      if (table != null) {
-        tables.add((VariableElement) enclosedElement);
+      // Only look up the annotations that can be present on the kind of element
+      ElementKind kind = enclosedElement.getKind();
+      if (kind.isClass() || kind.isInterface()) {
+        findAnnotations(enclosedElement);
+      } else if (kind == ElementKind.FIELD) {
+        findFieldAnnotations((VariableElement) enclosedElement);
+      } else if (kind == ElementKind.METHOD) {
+        findMethodAnnotations((ExecutableElement) enclosedElement);
       }
+    }
+  }
 
-      OnCreate onCreate = enclosedElement.getAnnotation(OnCreate.class);
-      if (onCreate != null) {
-        if (this.onCreate != null) {
-          error("Multiple OnCreate annotations found in " + database.getSimpleName().toString());
-        }
+  private void findFieldAnnotations(VariableElement field) {
+    Table table = field.getAnnotation(Table.class);
+    if (table != null) {
+      tables.add(field);
+    }
+
+    ExecOnCreate execOnCreate = field.getAnnotation(ExecOnCreate.class);
+    if (execOnCreate != null) {
+      this.execOnCreate.add(field);
+    }
+  }
 
-        this.onCreate = (ExecutableElement) enclosedElement;
+  private void findMethodAnnotations(ExecutableElement method) {
+    OnCreate onCreate = method.getAnnotation(OnCreate.class);
+    if (onCreate != null) {
+      if (this.onCreate != null) {
+        error("Multiple OnCreate annotations found in " + database.getSimpleName().toString());
       }
 
-      OnUpgrade onUpgrade = enclosedElement.getAnnotation(OnUpgrade.class);
-      if (onUpgrade != null) {
-        if (this.onUpgrade != null) {
-          error("Multiple OnUpgrade annotations found in " + database.getSimpleName().toString());
-        }
+      this.onCreate = method;
+    }
 
-        this.onUpgrade = (ExecutableElement) enclosedElement;
+    OnUpgrade onUpgrade = method.getAnnotation(OnUpgrade.class);
+    if (onUpgrade != null) {
+      if (this.onUpgrade != null) {
+        error("Multiple OnUpgrade annotations found in " + database.getSimpleName().toString());
       }
 
-      OnConfigure onConfigure = enclosedElement.getAnnotation(OnConfigure.class);
-      if (onConfigure != null) {
-        if (this.onConfigure != null) {
-          error("Multiple OnConfigure annotations found in " + database.getSimpleName().toString());
-        }
+      this.onUpgrade = method;
+    }
 
-        this.onConfigure = (ExecutableElement) enclosedElement;
+    OnConfigure onConfigure = method.getAnnotation(OnConfigure.class);
+    if (onConfigure != null) {
+      if (this.onConfigure != null) {
+        error("Multiple OnConfigure annotations found in " + database.getSimpleName().toString());
       }
 
-      ExecOnCreate execOnCreate = enclosedElement.getAnnotation(ExecOnCreate.class);
-      if (execOnCreate != null) {
-        this.execOnCreate.add((VariableElement) enclosedElement);
-      }
+      this.onConfigure = method;
     }
   }
 
+
   public void writeJava(Filer filer) throws IOException {
-    JavaFileObject jfo = filer.createSourceFile(getFileName());
-    Writer out = jfo.openWriter();
+    List<Element> originatingElements = new ArrayList<>();
+    originatingElements.add(database);
 
     TypeSpec.Builder databaseBuilder = TypeSpec.classBuilder(className)
         .superclass(Clazz.SQLITE_OPEN_HELPER)
@@ -163,6 +182,7 @@ public class DatabaseWriter {
             Modifier.FINAL).initializer("$L", version).build();
     databaseBuilder.addField(versionSpec);
 
+    List<TableWriter> tableWriters = new ArrayList<>();
     for (VariableElement table : tables) {
       TypeElement tableClass = null;
       Table columns = table.getAnnotation(Table.class);
@@ -176,33 +196,73 @@ public class DatabaseWriter {
       ClassName tableClassName = ClassName.get(tableClass);
 
       TableWriter tableWriter = new TableWriter(processingEnv, table, tableClassName);
+      tableWriters.add(tableWriter);
+      originatingElements.addAll(tableWriter.getOriginatingElements());
       tableWriter.createTable(databaseBuilder);
+      indexes.addAll(tableWriter.createIndexes(databaseBuilder));
       tableWriter.createValuesBuilder(filer, outPackage);
+      tableWriter.createReader(filer, outPackage);
+      tableWriter.createRowModel(filer, outPackage);
+      tableWriter.createBatch(filer, outPackage);
     }
 
     WriterUtils.singleton(databaseBuilder, clazzName, Clazz.CONTEXT);
 
     databaseBuilder.addField(Clazz.CONTEXT, "context", Modifier.PRIVATE);
 
-    MethodSpec constructor = MethodSpec.constructorBuilder()
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
         .addModifiers(Modifier.PRIVATE)
         .addParameter(Clazz.CONTEXT, "context")
         .addStatement("super(context.getApplicationContext(), $S, null, DATABASE_VERSION)", fileName)
-        .addStatement("this.context = context.getApplicationContext()")
-        .build();
-    databaseBuilder.addMethod(constructor);
+        .addStatement("this.context = context.getApplicationContext()");
+    if (annotation.prebuilt()) {
+      constructor.addStatement("$T.install(this.context, $S, $S)", Clazz.PREBUILT_DATABASE,
+          PrebuiltDatabaseWriter.ASSET_DIRECTORY + fileName, fileName);
+    }
+    databaseBuilder.addMethod(constructor.build());
 
     databaseBuilder.addMethod(getOnCreateSpec());
     databaseBuilder.addMethod(getOnUpgradeSpec());
 
-    if (onConfigure != null) {
+    if (onConfigure != null || hasConnectionSettings()) {
       databaseBuilder.addMethod(getOnConfigureSpec());
     }
 
+    JavaFileObject jfo = filer.createSourceFile(getFileName(),
+        originatingElements.toArray(new Element[0]));
+    Writer out = jfo.openWriter();
+
     JavaFile javaFile = JavaFile.builder(outPackage, databaseBuilder.build()).build();
     javaFile.writeTo(out);
     out.flush();
     out.close();
+
+    if (annotation.prebuilt()) {
+      writePrebuilt(tableWriters, originatingElements);
+    }
+  }
+
+  private void writePrebuilt(List<TableWriter> tableWriters, List<Element> originatingElements) {
+    if (onCreate != null) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "OnCreate methods can not be run for a prebuilt database", onCreate);
+      return;
+    }
+
+    List<String> statements = new ArrayList<>();
+    for (VariableElement exec : execOnCreate) {
+      Object sql = exec.getConstantValue();
+      if (sql == null) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "ExecOnCreate must be a constant in a prebuilt database", exec);
+        return;
+      }
+      statements.add(sql.toString());
+    }
+
+    new PrebuiltDatabaseWriter(processingEnv).write(database, fileName, version,
+        annotation.pageSize(), tableWriters, statements,
+        originatingElements.toArray(new Element[0]));
   }
 
   private MethodSpec getOnCreateSpec() {
@@ -216,6 +276,10 @@ public class DatabaseWriter {
       onCreateBuilder.addStatement("db.execSQL($L)", table.getSimpleName().toString());
     }
 
+    for (String index : indexes) {
+      onCreateBuilder.addStatement("db.execSQL($L)", index);
+    }
+
     for (VariableElement exec : execOnCreate) {
       String variableName = exec.getSimpleName().toString();
       onCreateBuilder.addStatement("db.execSQL($T.$L)", exec.getEnclosingElement(), variableName);
@@ -295,12 +359,56 @@ public class DatabaseWriter {
     return onUpgradeBuilder.build();
   }
 
+  private boolean hasConnectionSettings() {
+    return annotation.writeAheadLogging()
+        || annotation.synchronous() != Database.Synchronous.DEFAULT
+        || annotation.cacheSize() != 0
+        || annotation.pageSize() != 0
+        || annotation.mmapSize() >= 0
+        || annotation.tempStore() != Database.TempStore.DEFAULT;
+  }
+
   private MethodSpec getOnConfigureSpec() {
     MethodSpec.Builder onConfigureBuilder = MethodSpec.methodBuilder("onConfigure")
         .addModifiers(Modifier.PUBLIC)
         .addAnnotation(Override.class)
         .addParameter(Clazz.SQLITE_DATABASE, "db");
 
+    // page_size has to be set before the database is created, or switched to WAL
+    if (annotation.pageSize() != 0) {
+      onConfigureBuilder.addStatement("db.execSQL($S)",
+          "PRAGMA page_size=" + annotation.pageSize());
+    }
+    if (annotation.writeAheadLogging()) {
+      onConfigureBuilder.addStatement("db.enableWriteAheadLogging()");
+    }
+    if (annotation.synchronous() != Database.Synchronous.DEFAULT) {
+      onConfigureBuilder.addStatement("db.execSQL($S)",
+          "PRAGMA synchronous=" + annotation.synchronous().name());
+    }
+    if (annotation.cacheSize() != 0) {
+      onConfigureBuilder.addStatement("db.execSQL($S)",
+          "PRAGMA cache_size=" + annotation.cacheSize());
+    }
+    if (annotation.mmapSize() >= 0) {
+      // Returns a row, which execSQL does not allow
+      onConfigureBuilder.addStatement("$T mmapSize = db.rawQuery($S, null)", Clazz.CURSOR,
+          "PRAGMA mmap_size=" + annotation.mmapSize())
+          .beginControlFlow("try")
+          .addStatement("mmapSize.moveToFirst()")
+          .nextControlFlow("finally")
+          .addStatement("mmapSize.close()")
+          .endControlFlow();
+    }
+    if (annotation.tempStore() != Database.TempStore.DEFAULT) {
+      onConfigureBuilder.addStatement("db.execSQL($S)",
+          "PRAGMA temp_store=" + annotation.tempStore().name());
+    }
+
+    if (onConfigure == null) {
+      return onConfigureBuilder.build();
+    }
+
     List<? extends VariableElement> parameters = onConfigure.getParameters();
     StringBuilder params = new StringBuilder();
     boolean first = true;
@@ -327,7 +435,7 @@ public class DatabaseWriter {
   }
 
   public void writeValues(Filer filer) throws IOException {
-    JavaFileObject jfo = filer.createSourceFile(getValuesFileName());
+    JavaFileObject jfo = filer.createSourceFile(getValuesFileName(), database);
     Writer out = jfo.openWriter();
 
     final String valuesPackage = outPackage + ".values";
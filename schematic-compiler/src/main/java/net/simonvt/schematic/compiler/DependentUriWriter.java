@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.lang.model.element.Modifier;
+import net.simonvt.schematic.compiler.ContentProviderWriter.UriContract;
+
+/**
+ * Writes the content URIs notified by a write to each table, those of the URIs reading a table
+ * changed by the write. A URI with {@code #} or {@code *} segments is notified through the part of
+ * its path before them.
+ */
+class DependentUriWriter {
+
+  // Paths of the content URIs notified by a write to each table written through a content URI
+  private final Map<String, Set<String>> dependentPaths = new LinkedHashMap<>();
+
+  /**
+   * Finds the paths of the content URIs reading the tables changed by a write to each table.
+   * Notifying a path also notifies the URIs below it, so paths below another path are left out.
+   */
+  DependentUriWriter(List<UriContract> uris, TableDependencies dependencies) {
+    Map<String, Set<String>> readingPaths = new HashMap<>();
+    for (UriContract uri : uris) {
+      if (uri.allowQuery) {
+        String path = getNotifyPath(uri.path);
+        for (String table : dependencies.getReadTables(uri)) {
+          Set<String> paths = readingPaths.get(table);
+          if (paths == null) {
+            paths = new TreeSet<>();
+            readingPaths.put(table, paths);
+          }
+          paths.add(path);
+        }
+      }
+    }
+
+    for (UriContract uri : uris) {
+      if ((uri.allowInsert || uri.allowUpdate || uri.allowDelete)
+          && !dependentPaths.containsKey(uri.table)) {
+        // Sorted, so a path comes before the paths below it
+        Set<String> paths = new TreeSet<>();
+        for (String table : dependencies.getWrittenTables(uri.table)) {
+          Set<String> tablePaths = readingPaths.get(table);
+          if (tablePaths != null) {
+            paths.addAll(tablePaths);
+          }
+        }
+
+        Set<String> notifyPaths = new LinkedHashSet<>();
+        for (String path : paths) {
+          if (!isBelow(path, notifyPaths)) {
+            notifyPaths.add(path);
+          }
+        }
+        dependentPaths.put(uri.table, notifyPaths);
+      }
+    }
+  }
+
+  /** Whether {@code path} is one of {@code paths}, or below one of them. */
+  private static boolean isBelow(String path, Set<String> paths) {
+    if (paths.contains("") || paths.contains(path)) {
+      return true;
+    }
+    for (int i = path.indexOf('/'); i >= 0; i = path.indexOf('/', i + 1)) {
+      if (paths.contains(path.substring(0, i))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /** The part of {@code path} before its first {@code #} or {@code *} segment. */
+  private static String getNotifyPath(String path) {
+    StringBuilder notifyPath = new StringBuilder();
+    for (String segment : path.split("/")) {
+      if ("#".equals(segment) || "*".equals(segment)) {
+        break;
+      }
+      if (!segment.isEmpty()) {
+        if (notifyPath.length() > 0) {
+          notifyPath.append('/');
+        }
+        notifyPath.append(segment);
+      }
+    }
+
+    return notifyPath.toString();
+  }
+
+  /** Adds a constant holding the URIs notified by a write to each table. */
+  void write(TypeSpec.Builder contentResolver) {
+    for (Map.Entry<String, Set<String>> entry : dependentPaths.entrySet()) {
+      CodeBlock.Builder initializer = CodeBlock.builder().add("{$>");
+      boolean first = true;
+      for (String path : entry.getValue()) {
+        initializer.add(first ? "\n" : ",\n")
+            .add("$T.parse(\"content://\" + AUTHORITY + $S)", Clazz.URI, "/" + path);
+        first = false;
+      }
+      initializer.add("$<\n}");
+
+      contentResolver.addField(FieldSpec.builder(ArrayTypeName.of(Clazz.URI),
+          getDependentUrisName(entry.getKey()), Modifier.PRIVATE, Modifier.STATIC,
+          Modifier.FINAL)
+          .initializer(initializer.build())
+          .build());
+    }
+  }
+
+  private static String getDependentUrisName(String table) {
+    return table.toUpperCase().replaceAll("\\W", "_") + "_DEPENDENT_URIS";
+  }
+
+  /**
+   * Notifies the content URIs reading the tables changed by a write to {@code uri}. These include
+   * {@code uri} itself, if it can be queried.
+   */
+  void addNotify(MethodSpec.Builder method, UriContract uri) {
+    method.beginControlFlow("for ($T dependentUri : $L)", Clazz.URI,
+        getDependentUrisName(uri.table))
+        .addStatement("notifications.notifyChange(dependentUri)")
+        .endControlFlow();
+  }
+}
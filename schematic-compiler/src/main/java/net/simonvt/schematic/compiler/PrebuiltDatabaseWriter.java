@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Builds a database at compile time, by running the statements of the generated {@code onCreate}
+ * in SQLite. The file is written through the Filer to {@link #ASSET_DIRECTORY} in the class
+ * output, from where the build copies it into the assets. Its user_version is set to the version
+ * of the database, so the installed copy is opened without running {@code onCreate}.
+ * <p>
+ * Requires the SQLite JDBC driver, {@code org.xerial:sqlite-jdbc}, on the annotation processor
+ * path.
+ */
+class PrebuiltDatabaseWriter {
+
+  /** Directory of the database, both in the class output and in the assets. */
+  static final String ASSET_DIRECTORY = "schematic/";
+
+  private static final String DRIVER = "org.sqlite.JDBC";
+
+  private final ProcessingEnvironment processingEnv;
+
+  PrebuiltDatabaseWriter(ProcessingEnvironment processingEnv) {
+    this.processingEnv = processingEnv;
+  }
+
+  /**
+   * Write the database {@code fileName}.
+   *
+   * @param execOnCreate The statements run after the tables and indexes have been created.
+   * @param originatingElements The elements the database is built from.
+   */
+  void write(Element database, String fileName, int version, int pageSize,
+      Collection<TableWriter> tables, List<String> execOnCreate,
+      Element[] originatingElements) {
+    try {
+      Class.forName(DRIVER);
+    } catch (ClassNotFoundException e) {
+      processingEnv.getMessager().printMessage(Kind.WARNING, "Database is prebuilt, but the SQLite "
+          + "JDBC driver was not found on the annotation processor path", database);
+      return;
+    }
+
+    // SQLite needs a file of its own, which is then copied into the class output
+    File temp;
+    try {
+      temp = File.createTempFile("schematic", ".db");
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Unable to build prebuilt database " + fileName + ": " + e.getMessage(), database);
+      return;
+    }
+
+    try {
+      try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + temp.getPath())) {
+        try (Statement statement = connection.createStatement()) {
+          if (pageSize != 0) {
+            statement.execute("PRAGMA page_size=" + pageSize);
+          }
+
+          connection.setAutoCommit(false);
+          for (TableWriter table : tables) {
+            statement.execute(table.createTableSql());
+          }
+          for (TableWriter table : tables) {
+            for (String index : table.createIndexSql()) {
+              statement.execute(index);
+            }
+          }
+          for (String sql : execOnCreate) {
+            statement.execute(sql);
+          }
+          connection.commit();
+          connection.setAutoCommit(true);
+
+          statement.execute("PRAGMA user_version=" + version);
+          statement.execute("VACUUM");
+        }
+      } catch (SQLException e) {
+        processingEnv.getMessager().printMessage(Kind.ERROR,
+            "Unable to build prebuilt database " + fileName + ": " + e.getMessage(), database);
+        return;
+      }
+
+      try {
+        FileObject resource = processingEnv.getFiler().createResource(
+            StandardLocation.CLASS_OUTPUT, "", ASSET_DIRECTORY + fileName, originatingElements);
+        try (OutputStream out = resource.openOutputStream()) {
+          Files.copy(temp.toPath(), out);
+        }
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Kind.ERROR,
+            "Unable to write prebuilt database " + fileName + ": " + e.getMessage(), database);
+      }
+    } finally {
+      temp.delete();
+    }
+  }
+}
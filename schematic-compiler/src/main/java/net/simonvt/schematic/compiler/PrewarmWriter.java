@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import javax.lang.model.element.Modifier;
+import net.simonvt.schematic.compiler.ContentProviderWriter.Shard;
+import net.simonvt.schematic.compiler.ContentProviderWriter.UriContract;
+
+/**
+ * Writes a {@link Clazz#DATABASE_PREWARMER} for each database of a ContentProvider, started in
+ * {@code onCreate}. It opens the database and prepares the query of each content URI, built by the
+ * same select method as the URI's query method.
+ */
+class PrewarmWriter {
+
+  private final ContentProviderWriter writer;
+
+  PrewarmWriter(ContentProviderWriter writer) {
+    this.writer = writer;
+  }
+
+  /** Creates and starts the prewarmer of each database, from {@code onCreate}. */
+  void addStart(MethodSpec.Builder onCreate) {
+    for (Shard shard : writer.shards.values()) {
+      // Builds the statements on the prewarm thread, @Where and @Join methods may be slow
+      TypeSpec statements = TypeSpec.anonymousClassBuilder("")
+          .addSuperinterface(ParameterizedTypeName.get(Callable.class, String[].class))
+          .addMethod(MethodSpec.methodBuilder("call")
+              .addModifiers(Modifier.PUBLIC)
+              .addAnnotation(Override.class)
+              .returns(String[].class)
+              .addStatement("return $L()", getStatementsName(shard))
+              .build())
+          .build();
+      onCreate.addStatement("$L = new $T($L, $L)", getPrewarmerName(shard),
+          Clazz.DATABASE_PREWARMER, shard.fieldName, statements)
+          .addStatement("$L.start()", getPrewarmerName(shard));
+    }
+  }
+
+  /**
+   * Adds the prewarmer of {@code shard}, a method returning the statements it prepares, and a
+   * method named after the shard's field, e.g. {@code database()}, waiting for it to open the
+   * database.
+   */
+  void write(TypeSpec.Builder contentResolver, Shard shard) {
+    CodeBlock.Builder statements = CodeBlock.builder().add("return new String[] {$>");
+    boolean first = true;
+    for (UriContract uri : writer.uris) {
+      if (uri.shard == shard && uri.allowQuery) {
+        statements.add(first ? "\n$L" : ",\n$L", getQuery(uri));
+        first = false;
+      }
+    }
+    statements.add("$<\n};\n");
+
+    contentResolver.addMethod(MethodSpec.methodBuilder(getStatementsName(shard))
+        .addModifiers(Modifier.PRIVATE)
+        .returns(ArrayTypeName.of(String.class))
+        .addCode(statements.build())
+        .build());
+
+    contentResolver.addField(Clazz.DATABASE_PREWARMER, getPrewarmerName(shard),
+        Modifier.PRIVATE);
+
+    contentResolver.addMethod(MethodSpec.methodBuilder(shard.fieldName)
+        .addModifiers(Modifier.PRIVATE)
+        .returns(Clazz.SQLITE_OPEN_HELPER)
+        .addStatement("$L.await()", getPrewarmerName(shard))
+        .addStatement("return $L", shard.fieldName)
+        .build());
+  }
+
+  /**
+   * The {@code prewarmQuery} method, building the query of a SelectionBuilder returned by a select
+   * method. Endpoints with a projection map select their mapped columns along with the table's.
+   */
+  MethodSpec getQuerySpec() {
+    boolean mapsColumns = !writer.columnMaps.isEmpty();
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("prewarmQuery")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(String.class)
+        .addParameter(Clazz.SELECTION_BUILDER, "builder");
+
+    if (mapsColumns) {
+      spec.addParameter(ParameterizedTypeName.get(Map.class, String.class, String.class),
+          "projectionMap");
+    }
+
+    spec.addParameter(String.class, "groupBy")
+        .addParameter(String.class, "having")
+        .addParameter(String.class, "orderBy")
+        .addParameter(String.class, "limit");
+
+    if (mapsColumns) {
+      spec.addStatement("String[] projection = null")
+          .beginControlFlow("if (projectionMap != null)")
+          .addStatement("projection = new String[projectionMap.size() + 1]")
+          .addStatement("projection[0] = \"*\"")
+          .addStatement("int i = 1")
+          .beginControlFlow("for (String column : projectionMap.keySet())")
+          .addStatement("projection[i++] = column")
+          .endControlFlow()
+          .endControlFlow();
+    } else {
+      spec.addStatement("final String[] projection = null");
+    }
+
+    return spec.addStatement(
+        "final String query = builder.buildQuery(projection, groupBy, having, orderBy, limit)")
+        .addStatement("builder.recycle()")
+        .addStatement("return query")
+        .build();
+  }
+
+  static String getPrewarmerName(Shard shard) {
+    return shard.index == 0 ? "prewarmer" : shard.fieldName + "Prewarmer";
+  }
+
+  static String getStatementsName(Shard shard) {
+    return shard.index == 0 ? "prewarmStatements" : shard.fieldName + "PrewarmStatements";
+  }
+
+  /**
+   * A call to {@code prewarmQuery} building the query the generated ContentProvider runs for
+   * {@code uri}, from the same select method as its query method. The URI's {@code #} and
+   * {@code *} segments are 0, and there is no selection.
+   */
+  private CodeBlock getQuery(UriContract uri) {
+    StringBuilder path = new StringBuilder();
+    for (String segment : uri.path.split("/")) {
+      path.append('/').append("#".equals(segment) || "*".equals(segment) ? "0" : segment);
+    }
+
+    CodeBlock.Builder query = CodeBlock.builder()
+        .add("prewarmQuery($L($T.parse(\"content://\" + AUTHORITY + $S), null, null), ",
+            ContentProviderWriter.getUriMethodName("select", uri), Clazz.URI, path.toString());
+    if (!writer.columnMaps.isEmpty()) {
+      query.add("$L, ", writer.columnMaps.containsKey(uri.parent)
+          ? ContentProviderWriter.getProjectionMapName(uri.parent) : null);
+    }
+    // The limit of a paged URI is a query parameter, not set by default
+    String limit = writer.isPaged(uri) ? null : uri.limit;
+    return query.add("$S, $S, $S, $S)", uri.groupBy, uri.having, uri.defaultSort, limit)
+        .build();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.util.List;
+import javax.lang.model.element.Modifier;
+import net.simonvt.schematic.compiler.ContentProviderWriter.UriContract;
+
+/**
+ * Writes the tables read by each cacheable content URI, and the calls invalidating the cached
+ * queries when a table is written to.
+ */
+class QueryCacheWriter {
+
+  private final List<UriContract> uris;
+
+  private final TableDependencies dependencies;
+
+  QueryCacheWriter(List<UriContract> uris, TableDependencies dependencies) {
+    this.uris = uris;
+    this.dependencies = dependencies;
+  }
+
+  /** Adds a constant holding the tables read by each cacheable content URI. */
+  void write(TypeSpec.Builder contentResolver) {
+    for (UriContract uri : uris) {
+      if (uri.cacheable && uri.allowQuery) {
+        CodeBlock.Builder initializer = CodeBlock.builder().add("{");
+        boolean first = true;
+        for (String table : dependencies.getReadTables(uri)) {
+          initializer.add(first ? "$S" : ", $S", table);
+          first = false;
+        }
+        initializer.add("}");
+
+        contentResolver.addField(FieldSpec.builder(ArrayTypeName.of(String.class),
+            getTablesName(uri), Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer(initializer.build())
+            .build());
+      }
+    }
+  }
+
+  static String getTablesName(UriContract uri) {
+    return uri.name + "_TABLES";
+  }
+
+  /** Invalidates the cached queries reading the tables changed by a write to {@code table}. */
+  void addWrite(MethodSpec.Builder method, String table) {
+    for (String writtenTable : dependencies.getWrittenTables(table)) {
+      method.addStatement("queryCache.onWrite($S)", writtenTable);
+    }
+  }
+}
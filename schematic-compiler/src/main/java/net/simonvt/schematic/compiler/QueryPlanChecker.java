@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic.Kind;
+import net.simonvt.schematic.compiler.ContentProviderWriter.UriContract;
+
+/**
+ * Creates the schema in an in-memory database, and runs EXPLAIN QUERY PLAN for the query of each
+ * content URI. Full table scans of filtered or joined tables, temporary b-trees and automatic
+ * indexes are reported as warnings, or as errors if the {@link #OPTION} is set to "error".
+ * <p>
+ * The queried shape includes the table, join, where, groupBy, having and defaultSort of the URI.
+ * Where clauses returned by {@code @Where} methods are not known at compile time, and URIs with a
+ * {@code @Join} method are skipped. Queries that can not be explained, e.g. because they sort by a
+ * column from {@code @MapColumns}, are reported with the same severity as a bad query plan.
+ * <p>
+ * Requires the SQLite JDBC driver, {@code org.xerial:sqlite-jdbc}, on the annotation processor
+ * path.
+ */
+class QueryPlanChecker {
+
+  static final String OPTION = "schematic.queryPlan";
+
+  private static final String DRIVER = "org.sqlite.JDBC";
+
+  private final ProcessingEnvironment processingEnv;
+
+  private final Kind kind;
+
+  QueryPlanChecker(ProcessingEnvironment processingEnv) {
+    this.processingEnv = processingEnv;
+
+    String option = processingEnv.getOptions().get(OPTION);
+    if ("error".equals(option)) {
+      kind = Kind.ERROR;
+    } else if ("warn".equals(option)) {
+      kind = Kind.WARNING;
+    } else {
+      if (option != null) {
+        processingEnv.getMessager()
+            .printMessage(Kind.WARNING, "Unknown value " + option + " for " + OPTION);
+      }
+      kind = null;
+    }
+  }
+
+  void check(Collection<TableWriter> tables, List<UriContract> uris, Set<String> dynamicJoins) {
+    if (kind == null) {
+      return;
+    }
+
+    try {
+      Class.forName(DRIVER);
+    } catch (ClassNotFoundException e) {
+      processingEnv.getMessager().printMessage(Kind.WARNING, OPTION
+          + " is set, but the SQLite JDBC driver was not found on the annotation processor path");
+      return;
+    }
+
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+      try (Statement statement = connection.createStatement()) {
+        for (TableWriter table : tables) {
+          statement.execute(table.createTableSql());
+        }
+        for (TableWriter table : tables) {
+          for (String index : table.createIndexSql()) {
+            statement.execute(index);
+          }
+        }
+      }
+
+      for (UriContract uri : uris) {
+        if (uri.allowQuery && !dynamicJoins.contains(uri.path)) {
+          check(connection, uri);
+        }
+      }
+    } catch (SQLException e) {
+      processingEnv.getMessager()
+          .printMessage(Kind.WARNING, "Unable to create schema for query plans: " + e.getMessage());
+    }
+  }
+
+  private void check(Connection connection, UriContract uri) {
+    List<String> where = where(uri);
+    String query = "EXPLAIN QUERY PLAN " + query(uri, where);
+
+    try (PreparedStatement statement = connection.prepareStatement(query)) {
+      int parameterCount = statement.getParameterMetaData().getParameterCount();
+      for (int i = 1; i <= parameterCount; i++) {
+        statement.setNull(i, Types.VARCHAR);
+      }
+
+      try (ResultSet plan = statement.executeQuery()) {
+        int loop = 0;
+        while (plan.next()) {
+          String detail = plan.getString("detail");
+          if (detail.startsWith("SCAN ") || detail.startsWith("SEARCH ")) {
+            // Scanning the outer table is expected when nothing filters it
+            if (detail.startsWith("SCAN ") && (loop > 0 || !where.isEmpty())) {
+              report(uri, "scans a table", detail);
+            }
+            loop++;
+          }
+          if (detail.contains("AUTOMATIC")) {
+            report(uri, "creates an automatic index", detail);
+          } else if (detail.startsWith("USE TEMP B-TREE")) {
+            report(uri, "sorts in a temporary b-tree", detail);
+          }
+        }
+      }
+    } catch (SQLException e) {
+      // e.g. a sort order using a column from @MapColumns, which is only known at runtime
+      processingEnv.getMessager().printMessage(kind, "Unable to check the query plan for path "
+          + uri.path + ": " + e.getMessage(), uri.element);
+    }
+  }
+
+  private static List<String> where(UriContract uri) {
+    List<String> where = new ArrayList<>();
+    if (uri.contractType == UriContract.Type.INEXACT) {
+      for (String column : uri.whereColumns) {
+        where.add(column + "=?");
+      }
+    }
+    for (String clause : uri.where) {
+      where.add(clause);
+    }
+
+    return where;
+  }
+
+  /** The query the generated ContentProvider runs for the URI, without any selection. */
+  private static String query(UriContract uri, List<String> where) {
+    StringBuilder query = new StringBuilder("SELECT * FROM ").append(uri.table);
+    if (uri.join != null) {
+      query.append(' ').append(uri.join);
+    }
+    for (int i = 0; i < where.size(); i++) {
+      query.append(i == 0 ? " WHERE (" : " AND (").append(where.get(i)).append(')');
+    }
+    if (uri.groupBy != null) {
+      query.append(" GROUP BY ").append(uri.groupBy);
+    }
+    if (uri.having != null) {
+      query.append(" HAVING ").append(uri.having);
+    }
+    if (uri.defaultSort != null) {
+      query.append(" ORDER BY ").append(uri.defaultSort);
+    }
+
+    return query.toString();
+  }
+
+  private void report(UriContract uri, String problem, String detail) {
+    processingEnv.getMessager().printMessage(kind,
+        "Query for path " + uri.path + " " + problem + " (" + detail + ")", uri.element);
+  }
+}
@@ -63,12 +63,20 @@ public class SchematicProcessor extends AbstractProcessor {
     return supportedTypes;
   }
 
+  @Override public Set<String> getSupportedOptions() {
+    return new LinkedHashSet<>(
+        Arrays.asList(QueryPlanChecker.OPTION, ContentProviderWriter.OPTION_MAX_METHOD_SIZE));
+  }
+
   @Override public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latestSupported();
   }
 
   @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
-    processDatabases(env);
+    // The final round has no new sources to process
+    if (!env.processingOver()) {
+      processDatabases(env);
+    }
     return true;
   }
 
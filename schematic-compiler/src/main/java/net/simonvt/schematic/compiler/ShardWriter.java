@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.common.base.CaseFormat;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import net.simonvt.schematic.annotation.TableEndpoint;
+import net.simonvt.schematic.compiler.ContentProviderWriter.Shard;
+import net.simonvt.schematic.compiler.ContentProviderWriter.UriContract;
+
+/**
+ * Routes the URIs of each endpoint to the database set with {@code @TableEndpoint(database)}, or
+ * to the database of the ContentProvider. Writes {@code shardOf(Uri)} and {@code shard(int)}, used
+ * by batches spanning several databases.
+ */
+class ShardWriter {
+
+  private final ContentProviderWriter writer;
+
+  ShardWriter(ContentProviderWriter writer) {
+    this.writer = writer;
+  }
+
+  /** The database the URIs of an endpoint are routed to. */
+  Shard getShard(TableEndpoint tableEndpoint, Element endpoint) {
+    TypeMirror mirror = null;
+    try {
+      tableEndpoint.database();
+    } catch (MirroredTypeException e) {
+      mirror = e.getTypeMirror();
+    }
+
+    if (mirror == null || mirror.getKind() == TypeKind.VOID) {
+      return writer.shards.get(writer.database);
+    }
+
+    Element shardDatabase = writer.processingEnv.getTypeUtils().asElement(mirror);
+    Shard shard = writer.shards.get(shardDatabase);
+    if (shard == null) {
+      String fieldName = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_CAMEL,
+          shardDatabase.getSimpleName().toString());
+      if ("database".equals(fieldName)) {
+        fieldName = fieldName + writer.shards.size();
+      }
+
+      shard = new Shard(writer.shards.size(), shardDatabase,
+          writer.getDatabaseClass(shardDatabase), fieldName);
+      shard.endpoint = endpoint;
+      writer.shards.put(shardDatabase, shard);
+      writer.findTables(shardDatabase, shard);
+    }
+
+    return shard;
+  }
+
+  /**
+   * Reports databases whose field, accessor or prewarm members in the generated ContentProvider
+   * would clash with another member.
+   */
+  void checkNames() {
+    Set<String> reserved = new HashSet<>();
+    Collections.addAll(reserved, "database", "notifications", "queryCache", "prewarmer",
+        "prewarmStatements", "main", "onCreate", "query", "insert", "update", "delete",
+        "bulkInsert", "applyBatch", "getType", "getBuilder", "insertValues", "prewarmQuery",
+        "shard", "shardOf");
+    Elements elementUtils = writer.elementUtils;
+    TypeElement contentProvider = elementUtils.getTypeElement(Clazz.CONTENT_PROVIDER.toString());
+    if (contentProvider != null) {
+      for (Element member : elementUtils.getAllMembers(contentProvider)) {
+        reserved.add(member.getSimpleName().toString());
+      }
+    }
+    String[] operations = { "query", "select", "insert", "update", "delete", "bulkInsert" };
+    for (UriContract uri : writer.uris) {
+      for (String operation : operations) {
+        reserved.add(ContentProviderWriter.getUriMethodName(operation, uri));
+      }
+    }
+
+    ProcessingEnvironment processingEnv = writer.processingEnv;
+    for (Shard shard : writer.shards.values()) {
+      if (shard.index == 0) {
+        continue;
+      }
+
+      for (String name : new String[] {
+          shard.fieldName, PrewarmWriter.getPrewarmerName(shard),
+          PrewarmWriter.getStatementsName(shard)
+      }) {
+        if (!reserved.add(name)) {
+          processingEnv.getMessager().printMessage(Kind.ERROR, "Database "
+              + ((TypeElement) shard.database).getQualifiedName() + " clashes with the generated "
+              + "member " + name + " of " + writer.providerName + ", rename the database class",
+              shard.endpoint);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds {@code shardOf(Uri)}, returning the index of the database a URI is routed to, and
+   * {@code shard(int)}, returning the SQLiteOpenHelper of an index.
+   */
+  void write(TypeSpec.Builder contentResolver) {
+    contentResolver.addField(FieldSpec.builder(int.class, "SHARD_COUNT", Modifier.PRIVATE,
+        Modifier.STATIC, Modifier.FINAL).initializer("$L", writer.shards.size()).build());
+
+    MethodSpec.Builder shardOf = MethodSpec.methodBuilder("shardOf")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(int.class)
+        .addParameter(Clazz.URI, "uri")
+        .beginControlFlow("switch (match(uri))");
+
+    MethodSpec.Builder shard = MethodSpec.methodBuilder("shard")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(Clazz.SQLITE_OPEN_HELPER)
+        .addParameter(int.class, "shard")
+        .beginControlFlow("switch (shard)");
+
+    for (Shard s : writer.shards.values()) {
+      if (s.index == 0) {
+        continue;
+      }
+
+      boolean hasUris = false;
+      for (UriContract uri : writer.uris) {
+        if (uri.shard == s) {
+          shardOf.addCode("case $L:\n", uri.name);
+          hasUris = true;
+        }
+      }
+      if (hasUris) {
+        shardOf.addCode("$>").addStatement("return $L", s.index).addCode("$<");
+      }
+
+      shard.addCode("case $L:\n$>", s.index)
+          .addStatement("return $L", writer.getDatabase(s))
+          .addCode("$<");
+    }
+
+    // Unknown URIs are routed to the default database, and fail when the operation is applied
+    shardOf.addCode("default:\n$>").addStatement("return 0").addCode("$<").endControlFlow();
+    shard.addCode("default:\n$>")
+        .addStatement("return $L", writer.getDatabase(writer.shards.get(writer.database)))
+        .addCode("$<")
+        .endControlFlow();
+
+    contentResolver.addMethod(shardOf.build()).addMethod(shard.build());
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import net.simonvt.schematic.compiler.ContentProviderWriter.UriContract;
+
+/**
+ * Finds the tables the query of each content URI reads, and the tables changed by a write to each
+ * table. Used to invalidate cached queries and to notify dependent URIs.
+ */
+class TableDependencies {
+
+  // Tables read by the query of each content URI, and tables changed by a write to each table
+  private final Map<UriContract, Set<String>> readTables = new HashMap<>();
+  private final Map<String, Set<String>> writtenTables = new HashMap<>();
+
+  /**
+   * @param runtimePaths The paths with a {@code @Join} or {@code @Where} method.
+   * @param columnMaps The {@code @MapColumns} method of each endpoint.
+   */
+  TableDependencies(List<UriContract> uris, Map<String, TableWriter> tables,
+      Set<String> runtimePaths, Map<Element, ExecutableElement> columnMaps) {
+    for (UriContract uri : uris) {
+      readTables.put(uri, findReadTables(uri, tables, runtimePaths, columnMaps));
+    }
+
+    // Tables with a foreign key referencing each table
+    Map<String, Set<String>> referencedBy = new HashMap<>();
+    for (TableWriter tableWriter : tables.values()) {
+      for (String referenced : tableWriter.getReferencedTables()) {
+        Set<String> referencing = referencedBy.get(referenced);
+        if (referencing == null) {
+          referencing = new LinkedHashSet<>();
+          referencedBy.put(referenced, referencing);
+        }
+        referencing.add(tableWriter.name);
+      }
+    }
+
+    for (String table : tables.keySet()) {
+      writtenTables.put(table, findWrittenTables(table, referencedBy));
+    }
+  }
+
+  /**
+   * Tables a query on {@code uri} may read. Tables named in the join, where, group by, having and
+   * sort clauses are included, as are tables named in the String constants of the class declaring
+   * its projection map. If part of the query is built at runtime by a {@code @Join} or
+   * {@code @Where} method, it may read any table.
+   */
+  private static Set<String> findReadTables(UriContract uri, Map<String, TableWriter> tables,
+      Set<String> runtimePaths, Map<Element, ExecutableElement> columnMaps) {
+    Set<String> read = new LinkedHashSet<>();
+    read.add(uri.table);
+
+    if (runtimePaths.contains(uri.path)) {
+      read.addAll(tables.keySet());
+      return read;
+    }
+
+    StringBuilder sql = new StringBuilder();
+    for (String clause : new String[] {uri.join, uri.groupBy, uri.having, uri.defaultSort}) {
+      if (clause != null) {
+        sql.append(clause).append(' ');
+      }
+    }
+    for (String where : uri.where) {
+      sql.append(where).append(' ');
+    }
+
+    ExecutableElement mapColumns = columnMaps.get(uri.parent);
+    if (mapColumns != null) {
+      for (Element element : mapColumns.getEnclosingElement().getEnclosedElements()) {
+        if (element instanceof VariableElement) {
+          Object value = ((VariableElement) element).getConstantValue();
+          if (value instanceof String) {
+            sql.append(value).append(' ');
+          }
+        }
+      }
+    }
+
+    for (String word : sql.toString().split("\\W+")) {
+      if (tables.containsKey(word)) {
+        read.add(word);
+      }
+    }
+
+    return read;
+  }
+
+  /**
+   * Tables changed by a write to {@code table}. Rows in tables with a foreign key referencing the
+   * table may be changed by the foreign key's actions, and so on through their foreign keys.
+   *
+   * @param referencedBy The tables with a foreign key referencing each table.
+   */
+  private static Set<String> findWrittenTables(String table,
+      Map<String, Set<String>> referencedBy) {
+    Set<String> written = new LinkedHashSet<>();
+    written.add(table);
+
+    Deque<String> pending = new ArrayDeque<>();
+    pending.add(table);
+    while (!pending.isEmpty()) {
+      Set<String> referencing = referencedBy.get(pending.remove());
+      if (referencing != null) {
+        for (String referencingTable : referencing) {
+          if (written.add(referencingTable)) {
+            pending.add(referencingTable);
+          }
+        }
+      }
+    }
+
+    return written;
+  }
+
+  Set<String> getReadTables(UriContract uri) {
+    return readTables.get(uri);
+  }
+
+  Set<String> getWrittenTables(String table) {
+    Set<String> written = writtenTables.get(table);
+    // A table none of the databases declare
+    return written != null ? written : Collections.singleton(table);
+  }
+}
@@ -17,17 +17,24 @@
 package net.simonvt.schematic.compiler;
 
 import com.google.common.base.CaseFormat;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
@@ -46,16 +53,43 @@ import net.simonvt.schematic.annotation.DataType;
 import net.simonvt.schematic.annotation.DefaultValue;
 import net.simonvt.schematic.annotation.ForeignKeyConstraint;
 import net.simonvt.schematic.annotation.IfNotExists;
+import net.simonvt.schematic.annotation.Index;
+import net.simonvt.schematic.annotation.Indices;
 import net.simonvt.schematic.annotation.NotNull;
 import net.simonvt.schematic.annotation.PrimaryKey;
 import net.simonvt.schematic.annotation.PrimaryKeyConstraint;
 import net.simonvt.schematic.annotation.References;
+import net.simonvt.schematic.annotation.RowModel;
 import net.simonvt.schematic.annotation.Table;
 import net.simonvt.schematic.annotation.Unique;
 import net.simonvt.schematic.annotation.UniqueConstraint;
 
 public class TableWriter {
 
+  private static class TableIndex {
+
+    Index index;
+
+    Element element;
+
+    // Column the annotation was added to, if any
+    String column;
+
+    TableIndex(Index index, Element element, String column) {
+      this.index = index;
+      this.element = element;
+      this.column = column;
+    }
+
+    List<String> columns() {
+      if (index.columns().length == 0 && column != null) {
+        return Arrays.asList(column);
+      }
+
+      return Arrays.asList(index.columns());
+    }
+  }
+
   ProcessingEnvironment processingEnv;
 
   String name;
@@ -65,9 +99,12 @@ public class TableWriter {
   private List<Check> checkConstraints = new ArrayList<>();
   private List<ForeignKeyConstraint> foreignKeyConstraints = new ArrayList<>();
   private PrimaryKeyConstraint tableLevelPrimaryKey;
+  private List<TableIndex> indexes = new ArrayList<>();
 
   private PrimaryKey primaryKey;
 
+  String integerPrimaryKey;
+
   VariableElement table;
   ClassName tableClassName;
 
@@ -104,6 +141,21 @@ public class TableWriter {
     }
   }
 
+  /**
+   * The elements the generated code for this table is based on: the table field, and the columns
+   * interface and its parents.
+   */
+  public List<Element> getOriginatingElements() {
+    List<Element> elements = new ArrayList<>();
+    elements.add(table);
+    elements.add(columnsClass);
+    for (TypeMirror mirror : columnsClass.getInterfaces()) {
+      elements.add(processingEnv.getTypeUtils().asElement(mirror));
+    }
+
+    return elements;
+  }
+
   private void fillEntireTableConstrains(TypeElement columnsClass) {
     Constraints entireTableConstraints = columnsClass.getAnnotation(Constraints.class);
     if (entireTableConstraints != null) {
@@ -136,6 +188,18 @@ public class TableWriter {
     }
 
     tableLevelPrimaryKey = columnsClass.getAnnotation(PrimaryKeyConstraint.class);
+
+    Indices indices = columnsClass.getAnnotation(Indices.class);
+    if (indices != null) {
+      for (Index index : indices.value()) {
+        indexes.add(new TableIndex(index, columnsClass, null));
+      }
+    }
+
+    Index index = columnsClass.getAnnotation(Index.class);
+    if (index != null) {
+      indexes.add(new TableIndex(index, columnsClass, null));
+    }
   }
 
   private void findColumns(List<? extends Element> elements) {
@@ -168,17 +232,86 @@ public class TableWriter {
         }
 
         this.primaryKey = primaryKey;
+
+        if (dataType.value() == DataType.Type.INTEGER) {
+          integerPrimaryKey = columnName;
+        }
+      }
+
+      if (variableElement.getAnnotation(AutoIncrement.class) != null
+          && tableLevelPrimaryKey != null) {
+        error(String.format(
+            "AutoIncrement is not allowed when multiple primary keys are defined. "
+                + "Found in %s", tableClassName));
+      }
+
+      Index index = variableElement.getAnnotation(Index.class);
+      if (index != null) {
+        indexes.add(new TableIndex(index, variableElement, columnName));
       }
 
       this.columns.add(variableElement);
     }
   }
 
+  /** A line of the CREATE TABLE statement, starting with the name of {@code column} if set. */
+  private static final class SqlLine {
+
+    final VariableElement column;
+
+    final StringBuilder sql = new StringBuilder();
+
+    SqlLine(VariableElement column) {
+      this.column = column;
+    }
+  }
+
   public void createTable(TypeSpec.Builder databaseBuilder)
       throws IOException {
-    List<ClassName> classes = new ArrayList<>();
+    CodeBlock.Builder query = CodeBlock.builder();
+    List<SqlLine> lines = createTableLines();
+    for (int i = 0; i < lines.size(); i++) {
+      SqlLine line = lines.get(i);
+      if (i > 0) {
+        query.add("\n + ");
+      }
+      if (line.column != null) {
+        query.add("$T.$L + ", tableClassName, line.column.getSimpleName());
+      }
+      query.add("$S", line.sql.toString());
+    }
 
-    StringBuilder query = new StringBuilder("\"CREATE TABLE ");
+    FieldSpec tableSpec = FieldSpec.builder(String.class, table.getSimpleName().toString())
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .initializer(query.build())
+        .build();
+
+    databaseBuilder.addField(tableSpec);
+  }
+
+  /** The CREATE TABLE statement, with the column constants resolved to their values. */
+  public String createTableSql() {
+    StringBuilder sql = new StringBuilder();
+    for (SqlLine line : createTableLines()) {
+      if (line.column != null) {
+        sql.append(line.column.getConstantValue());
+      }
+      sql.append(line.sql);
+    }
+
+    return sql.toString();
+  }
+
+  /**
+   * Builds the CREATE TABLE statement. Column definitions start a line with a reference to the
+   * column's constant, which the generated {@code TABLE} field refers to by name.
+   */
+  private List<SqlLine> createTableLines() {
+    List<SqlLine> lines = new ArrayList<>();
+    SqlLine line = new SqlLine(null);
+    lines.add(line);
+    StringBuilder query = line.sql;
+    query.append("CREATE TABLE ");
     if (ifNotExists) {
       query.append("IF NOT EXISTS ");
     }
@@ -192,17 +325,12 @@ public class TableWriter {
         first = false;
       }
 
-      query.append("\"\n");
+      line = new SqlLine(element);
+      lines.add(line);
+      query = line.sql;
 
       DataType dataType = element.getAnnotation(DataType.class);
-
-      String columnName = element.getConstantValue().toString();
-      query.append(" + ").append("$T");
-
-      classes.add(tableClassName);
-
-      query.append(".").append(element.getSimpleName().toString()).append(" + ");
-      query.append("\" ").append(dataType.value());
+      query.append(" ").append(dataType.value());
 
       NotNull notNull = element.getAnnotation(NotNull.class);
       if (notNull != null) {
@@ -234,12 +362,6 @@ public class TableWriter {
 
       AutoIncrement autoIncrement = element.getAnnotation(AutoIncrement.class);
       if (autoIncrement != null) {
-        if (tableLevelPrimaryKey != null) {
-          error(String.format(
-              "AutoIncrement is not allowed when multiple primary keys are defined. "
-                  + "Found in %s", tableClassName));
-        }
-
         query.append(" ").append("AUTOINCREMENT");
       }
 
@@ -255,6 +377,7 @@ public class TableWriter {
     }
 
     if (tableLevelPrimaryKey != null) {
+      query = addConstraintLine(lines);
       writePrimaryKey(query,
               Arrays.asList(tableLevelPrimaryKey.columns()),
               tableLevelPrimaryKey.name(),
@@ -262,34 +385,221 @@ public class TableWriter {
     }
 
     for (Check checkConstraint : checkConstraints) {
-      query.append( ",\"\n + \"");
+      query = addConstraintLine(lines);
       writeCheckConstraint(query, checkConstraint);
     }
 
     if (!uniqueConstraints.isEmpty()) {
       for (UniqueConstraint uniqueConstraint : uniqueConstraints) {
+        query = addConstraintLine(lines);
         writeUniqueConstraint(query, uniqueConstraint);
       }
     }
 
     if (!foreignKeyConstraints.isEmpty()) {
       for (ForeignKeyConstraint foreignKey : foreignKeyConstraints) {
+        query = addConstraintLine(lines);
         writeForeignKeyConstraint(query, foreignKey);
       }
     }
 
-    query.append(")\"");
+    query.append(")");
 
-    FieldSpec tableSpec = FieldSpec.builder(String.class, table.getSimpleName().toString())
-        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
-        .initializer(query.toString(), classes.toArray())
-        .build();
+    return lines;
+  }
 
-    databaseBuilder.addField(tableSpec);
+  /** Ends the last line with a comma, and starts a line for a table constraint. */
+  private static StringBuilder addConstraintLine(List<SqlLine> lines) {
+    lines.get(lines.size() - 1).sql.append(",");
+    SqlLine line = new SqlLine(null);
+    lines.add(line);
+    return line.sql;
+  }
+
+  /**
+   * Adds a CREATE INDEX statement for each index of the table.
+   *
+   * @return the names of the added fields.
+   */
+  public List<String> createIndexes(TypeSpec.Builder databaseBuilder) {
+    Set<String> columnNames = new HashSet<>();
+    for (VariableElement column : columns) {
+      columnNames.add(column.getConstantValue().toString());
+    }
+
+    List<String> fields = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    for (TableIndex tableIndex : indexes) {
+      Index index = tableIndex.index;
+      List<String> indexColumns = tableIndex.columns();
+      if (indexColumns.isEmpty()) {
+        error(String.format("Index in %s has no columns", tableClassName));
+        continue;
+      }
+
+      for (String column : indexColumns) {
+        if (!columnNames.contains(columnName(column))) {
+          error(String.format("Index in %s references unknown column %s", tableClassName, column));
+        }
+      }
+
+      String indexName = indexName(tableIndex);
+      if (!names.add(indexName)) {
+        error(String.format("Multiple indexes named %s found in %s", indexName, tableClassName));
+        continue;
+      }
+
+      String fieldName = "INDEX_" + indexName.toUpperCase(Locale.US);
+      databaseBuilder.addField(FieldSpec.builder(String.class, fieldName)
+          .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+          .initializer("$S", createIndexSql(tableIndex, indexName))
+          .build());
+      fields.add(fieldName);
+    }
+
+    checkForeignKeyIndexes();
+
+    return fields;
+  }
+
+  /** The CREATE INDEX statements of the table. */
+  public List<String> createIndexSql() {
+    List<String> statements = new ArrayList<>();
+    for (TableIndex tableIndex : indexes) {
+      if (!tableIndex.columns().isEmpty()) {
+        statements.add(createIndexSql(tableIndex, indexName(tableIndex)));
+      }
+    }
+
+    return statements;
+  }
+
+  /** Names of the tables referenced by the foreign keys of this table. */
+  public Set<String> getReferencedTables() {
+    Set<String> referenced = new HashSet<>();
+    for (VariableElement column : columns) {
+      References references = column.getAnnotation(References.class);
+      if (references != null) {
+        referenced.add(references.table());
+      }
+    }
+    for (ForeignKeyConstraint foreignKey : foreignKeyConstraints) {
+      referenced.add(foreignKey.referencedTable());
+    }
+
+    return referenced;
+  }
+
+  private String indexName(TableIndex tableIndex) {
+    String indexName = tableIndex.index.name();
+    if (indexName.isEmpty()) {
+      StringBuilder builder = new StringBuilder(name);
+      for (String column : tableIndex.columns()) {
+        builder.append('_').append(columnName(column));
+      }
+      indexName = builder.toString();
+    }
+
+    return indexName;
+  }
+
+  private String createIndexSql(TableIndex tableIndex, String indexName) {
+    Index index = tableIndex.index;
+    List<String> indexColumns = tableIndex.columns();
+
+    StringBuilder query = new StringBuilder("CREATE ");
+    if (index.unique()) {
+      query.append("UNIQUE ");
+    }
+    query.append("INDEX ");
+    if (ifNotExists) {
+      query.append("IF NOT EXISTS ");
+    }
+    query.append(indexName).append(" ON ").append(name).append(" (");
+    for (int i = 0; i < indexColumns.size(); i++) {
+      if (i != 0) {
+        query.append(", ");
+      }
+      query.append(indexColumns.get(i));
+    }
+    query.append(')');
+    if (!index.where().isEmpty()) {
+      query.append(" WHERE ").append(index.where());
+    }
+
+    return query.toString();
+  }
+
+  /** Column name of an index column, without ASC, DESC or COLLATE. */
+  private static String columnName(String indexColumn) {
+    return indexColumn.trim().split("\\s+")[0];
+  }
+
+  /**
+   * Warns about foreign keys that are not the leading columns of an index. Without an index,
+   * SQLite scans this table whenever a row in the referenced table is deleted or its key updated.
+   */
+  private void checkForeignKeyIndexes() {
+    List<List<String>> indexed = new ArrayList<>();
+    for (TableIndex tableIndex : indexes) {
+      if (tableIndex.index.where().isEmpty()) {
+        List<String> indexColumns = new ArrayList<>();
+        for (String column : tableIndex.columns()) {
+          indexColumns.add(columnName(column));
+        }
+        indexed.add(indexColumns);
+      }
+    }
+    if (tableLevelPrimaryKey != null) {
+      indexed.add(Arrays.asList(tableLevelPrimaryKey.columns()));
+    }
+    for (UniqueConstraint uniqueConstraint : uniqueConstraints) {
+      indexed.add(Arrays.asList(uniqueConstraint.columns()));
+    }
+    for (VariableElement column : columns) {
+      if (column.getAnnotation(PrimaryKey.class) != null
+          || column.getAnnotation(Unique.class) != null) {
+        indexed.add(Arrays.asList(column.getConstantValue().toString()));
+      }
+    }
+
+    for (VariableElement column : columns) {
+      if (column.getAnnotation(References.class) != null) {
+        List<String> foreignKey = Arrays.asList(column.getConstantValue().toString());
+        if (!isIndexed(indexed, foreignKey)) {
+          warnNotIndexed(foreignKey, column);
+        }
+      }
+    }
+
+    for (ForeignKeyConstraint foreignKey : foreignKeyConstraints) {
+      List<String> foreignKeyColumns = Arrays.asList(foreignKey.columns());
+      if (!isIndexed(indexed, foreignKeyColumns)) {
+        warnNotIndexed(foreignKeyColumns, columnsClass);
+      }
+    }
+  }
+
+  private static boolean isIndexed(List<List<String>> indexed, List<String> columns) {
+    Set<String> columnSet = new HashSet<>(columns);
+    for (List<String> indexColumns : indexed) {
+      if (indexColumns.size() >= columns.size()
+          && new HashSet<>(indexColumns.subList(0, columns.size())).equals(columnSet)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private void warnNotIndexed(List<String> columns, Element element) {
+    processingEnv.getMessager().printMessage(Kind.WARNING, String.format(
+        "Foreign key %s in %s is not indexed. Deleting from, or updating the key of, the "
+            + "referenced table will scan %s. Add an @Index.", columns, tableClassName, name),
+        element);
   }
 
   private static void writeForeignKeyConstraint(StringBuilder query, ForeignKeyConstraint foreignKey) {
-    query.append(",\"\n + \"");
     if (foreignKey.name().length() > 0) {
       query.append(' ').append("CONSTRAINT ").append(foreignKey.name());
     }
@@ -319,7 +629,6 @@ public class TableWriter {
           List<String> columnNames,
           String name,
           ConflictResolutionType resolutionType) {
-    query.append(",\"\n + \"");
     if (name.length() > 0) {
       query.append(' ').append("CONSTRAINT ").append(name);
     }
@@ -386,7 +695,8 @@ public class TableWriter {
     String className = name + "ValuesBuilder";
     String qualifiedName = outPackage + ".values." + className;
 
-    JavaFileObject jfo = filer.createSourceFile(qualifiedName);
+    JavaFileObject jfo = filer.createSourceFile(qualifiedName,
+        getOriginatingElements().toArray(new Element[0]));
     Writer out = jfo.openWriter();
 
     TypeSpec.Builder valuesBuilder = TypeSpec.classBuilder(className).addModifiers(Modifier.PUBLIC);
@@ -443,6 +753,497 @@ public class TableWriter {
     out.close();
   }
 
+  public void createReader(Filer filer, String outPackage) throws IOException {
+    String name = Character.toUpperCase(this.name.charAt(0)) + this.name.substring(1);
+    String valuesPackage = outPackage + ".values";
+    String className = name + "Reader";
+    String qualifiedName = valuesPackage + "." + className;
+
+    JavaFileObject jfo = filer.createSourceFile(qualifiedName,
+        getOriginatingElements().toArray(new Element[0]));
+    Writer out = jfo.openWriter();
+
+    ClassName columnsClassName = ClassName.get(columnsClass);
+
+    TypeSpec.Builder reader = TypeSpec.classBuilder(className).addModifiers(Modifier.PUBLIC);
+
+    reader.addField(Clazz.CURSOR, "cursor", Modifier.PRIVATE, Modifier.FINAL);
+
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PUBLIC)
+        .addParameter(Clazz.CURSOR, "cursor")
+        .addStatement("this.cursor = cursor");
+
+    for (VariableElement element : columns) {
+      String column = element.getSimpleName().toString();
+      String indexName =
+          CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, column) + "Index";
+      String getterName = CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, column);
+
+      reader.addField(int.class, indexName, Modifier.PRIVATE, Modifier.FINAL);
+      constructor.addStatement("$L = cursor.getColumnIndex($T.$L)", indexName, columnsClassName,
+          column);
+
+      DataType.Type type = element.getAnnotation(DataType.class).value();
+      TypeName returnType;
+      String cursorGetter;
+      switch (type) {
+        case INTEGER:
+          returnType = TypeName.LONG;
+          cursorGetter = "getLong";
+          break;
+
+        case REAL:
+          returnType = TypeName.DOUBLE;
+          cursorGetter = "getDouble";
+          break;
+
+        case BLOB:
+          returnType = ArrayTypeName.of(byte.class);
+          cursorGetter = "getBlob";
+          break;
+
+        default:
+          returnType = ClassName.get(String.class);
+          cursorGetter = "getString";
+          break;
+      }
+
+      reader.addMethod(MethodSpec.methodBuilder("get" + getterName)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(returnType)
+          .addStatement("return cursor.$L(requireColumn($L, $T.$L))", cursorGetter, indexName,
+              columnsClassName, column)
+          .build());
+
+      if (element.getAnnotation(NotNull.class) == null) {
+        reader.addMethod(MethodSpec.methodBuilder("is" + getterName + "Null")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(boolean.class)
+            .addStatement("return cursor.isNull(requireColumn($L, $T.$L))", indexName,
+                columnsClassName, column)
+            .build());
+      }
+    }
+
+    reader.addMethod(constructor.build());
+
+    reader.addMethod(MethodSpec.methodBuilder("requireColumn")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(int.class)
+        .addParameter(int.class, "index")
+        .addParameter(String.class, "column")
+        .beginControlFlow("if (index == -1)")
+        .addStatement("throw new $T(\"column '\" + column + \"' does not exist\")",
+            IllegalArgumentException.class)
+        .endControlFlow()
+        .addStatement("return index")
+        .build());
+
+    JavaFile javaFile = JavaFile.builder(valuesPackage, reader.build()).build();
+    javaFile.writeTo(out);
+    out.flush();
+    out.close();
+  }
+
+  public void createRowModel(Filer filer, String outPackage) throws IOException {
+    RowModel rowModel = columnsClass.getAnnotation(RowModel.class);
+    if (rowModel == null) {
+      return;
+    }
+
+    String name = Character.toUpperCase(this.name.charAt(0)) + this.name.substring(1);
+    String valuesPackage = outPackage + ".values";
+    String className = rowModel.name();
+    if (className.trim().isEmpty()) {
+      className = name + "Row";
+    }
+    String qualifiedName = valuesPackage + "." + className;
+
+    JavaFileObject jfo = filer.createSourceFile(qualifiedName,
+        getOriginatingElements().toArray(new Element[0]));
+    Writer out = jfo.openWriter();
+
+    ClassName rowClassName = ClassName.get(valuesPackage, className);
+    ClassName readerClassName = ClassName.get(valuesPackage, name + "Reader");
+
+    TypeSpec.Builder row = TypeSpec.classBuilder(className)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC);
+
+    CodeBlock.Builder fromReader = CodeBlock.builder().add("return new $T($>$>", rowClassName);
+
+    MethodSpec.Builder equals = MethodSpec.methodBuilder("equals")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(boolean.class)
+        .addParameter(Object.class, "o")
+        .beginControlFlow("if (this == o)")
+        .addStatement("return true")
+        .endControlFlow()
+        .beginControlFlow("if (!(o instanceof $T))", rowClassName)
+        .addStatement("return false")
+        .endControlFlow()
+        .addStatement("$T other = ($T) o", rowClassName, rowClassName);
+
+    MethodSpec.Builder hashCode = MethodSpec.methodBuilder("hashCode")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(int.class)
+        .addStatement("int result = 1");
+
+    CodeBlock.Builder toString = CodeBlock.builder().add("return ");
+    String separator = className + "{";
+
+    boolean first = true;
+    for (VariableElement element : columns) {
+      String column = element.getSimpleName().toString();
+      String fieldName = CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, column);
+      String getterName = CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, column);
+
+      DataType.Type type = element.getAnnotation(DataType.class).value();
+      boolean nullable = element.getAnnotation(NotNull.class) == null
+          && !(type == DataType.Type.INTEGER && element.getAnnotation(PrimaryKey.class) != null);
+
+      TypeName fieldType;
+      switch (type) {
+        case INTEGER:
+          fieldType = nullable ? ClassName.get(Long.class) : TypeName.LONG;
+          break;
+
+        case REAL:
+          fieldType = nullable ? ClassName.get(Double.class) : TypeName.DOUBLE;
+          break;
+
+        case BLOB:
+          fieldType = ArrayTypeName.of(byte.class);
+          break;
+
+        default:
+          fieldType = ClassName.get(String.class);
+          break;
+      }
+
+      row.addField(fieldType, fieldName, Modifier.PUBLIC, Modifier.FINAL);
+      constructor.addParameter(fieldType, fieldName)
+          .addStatement("this.$L = $L", fieldName, fieldName);
+
+      if (!first) {
+        fromReader.add(",");
+      }
+      first = false;
+
+      if (nullable && fieldType.isBoxedPrimitive()) {
+        fromReader.add("\nreader.is$LNull() ? null : reader.get$L()", getterName, getterName);
+      } else {
+        fromReader.add("\nreader.get$L()", getterName);
+      }
+
+      toString.add("$S + $L + ", separator + fieldName + "=", fieldName);
+      separator = ", ";
+
+      if (fieldType.isPrimitive()) {
+        equals.beginControlFlow("if ($L != other.$L)", fieldName, fieldName);
+        if (type == DataType.Type.INTEGER) {
+          hashCode.addStatement("result = 31 * result + (int) ($L ^ ($L >>> 32))", fieldName,
+              fieldName);
+        } else {
+          hashCode.addStatement("result = 31 * result + $T.valueOf($L).hashCode()", Double.class,
+              fieldName);
+        }
+      } else if (type == DataType.Type.BLOB) {
+        equals.beginControlFlow("if (!$T.equals($L, other.$L))", Arrays.class, fieldName,
+            fieldName);
+        hashCode.addStatement("result = 31 * result + $T.hashCode($L)", Arrays.class, fieldName);
+      } else {
+        equals.beginControlFlow("if ($L != null ? !$L.equals(other.$L) : other.$L != null)",
+            fieldName, fieldName, fieldName, fieldName);
+        hashCode.addStatement("result = 31 * result + ($L != null ? $L.hashCode() : 0)",
+            fieldName, fieldName);
+      }
+      equals.addStatement("return false").endControlFlow();
+    }
+
+    fromReader.add(");\n$<$<");
+    toString.add("$S;\n", first ? className + "{}" : "}");
+
+    row.addMethod(constructor.build());
+
+    row.addMethod(MethodSpec.methodBuilder("fromCursor")
+        .addJavadoc("Create a row from the current position of the cursor. When reading multiple "
+            + "rows,\nuse {@link #fromCursor($T)} to only look up the column indexes once.\n",
+            readerClassName)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .returns(rowClassName)
+        .addParameter(Clazz.CURSOR, "cursor")
+        .addStatement("return fromCursor(new $T(cursor))", readerClassName)
+        .build());
+
+    row.addMethod(MethodSpec.methodBuilder("fromCursor")
+        .addJavadoc("Create a row from the current position of the reader's cursor.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .returns(rowClassName)
+        .addParameter(readerClassName, "reader")
+        .addCode(fromReader.build())
+        .build());
+
+    TypeName rowMapper = ParameterizedTypeName.get(Clazz.PAGED_QUERY_ROW_MAPPER, rowClassName);
+    TypeSpec rowMapperSpec = TypeSpec.anonymousClassBuilder("")
+        .superclass(rowMapper)
+        .addField(readerClassName, "reader", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("onPage")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PROTECTED)
+            .addParameter(Clazz.CURSOR, "cursor")
+            .addStatement("reader = new $T(cursor)", readerClassName)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("map")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PROTECTED)
+            .returns(rowClassName)
+            .addParameter(Clazz.CURSOR, "cursor")
+            .addStatement("return fromCursor(reader)")
+            .build())
+        .build();
+
+    row.addMethod(MethodSpec.methodBuilder("mapper")
+        .addJavadoc("Mapper for reading rows from a {@link $T}.\n", Clazz.PAGED_QUERY)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .returns(rowMapper)
+        .addStatement("return $L", rowMapperSpec)
+        .build());
+
+    row.addMethod(equals.addStatement("return true").build());
+    row.addMethod(hashCode.addStatement("return result").build());
+    row.addMethod(MethodSpec.methodBuilder("toString")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(String.class)
+        .addCode(toString.build())
+        .build());
+
+    JavaFile javaFile = JavaFile.builder(valuesPackage, row.build()).build();
+    javaFile.writeTo(out);
+    out.flush();
+    out.close();
+  }
+
+  /**
+   * Writes a class holding rows of the table in an array for each column, inserted with a single
+   * compiled statement. Unlike the ValuesBuilder, rows do not need a ContentValues each.
+   */
+  public void createBatch(Filer filer, String outPackage) throws IOException {
+    String name = Character.toUpperCase(this.name.charAt(0)) + this.name.substring(1);
+    String valuesPackage = outPackage + ".values";
+    String className = name + "Batch";
+    String qualifiedName = valuesPackage + "." + className;
+
+    JavaFileObject jfo = filer.createSourceFile(qualifiedName,
+        getOriginatingElements().toArray(new Element[0]));
+    Writer out = jfo.openWriter();
+
+    ClassName batchClassName = ClassName.get(valuesPackage, className);
+    ClassName columnsClassName = ClassName.get(columnsClass);
+
+    TypeSpec.Builder batch = TypeSpec.classBuilder(className)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addJavadoc("Rows of the $L table, held in an array for each column. Start each row with "
+            + "{@link #add()},\nthen set its values. Columns not set on any row are left out of "
+            + "the insert, so their\ndefault values apply. Columns set on some rows are NULL in "
+            + "the other rows.\n<p>\nRows are inserted directly into the database, so "
+            + "ContentProvider observers are not\nnotified.\n", this.name)
+        .addField(int.class, "size", Modifier.PRIVATE)
+        .addField(int.class, "capacity", Modifier.PRIVATE);
+
+    batch.addMethod(MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PUBLIC)
+        .addStatement("this(16)")
+        .build());
+
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PUBLIC)
+        .addParameter(int.class, "capacity")
+        .beginControlFlow("if (capacity <= 0)")
+        .addStatement("throw new $T(\"capacity must be positive\")",
+            IllegalArgumentException.class)
+        .endControlFlow()
+        .addStatement("this.capacity = capacity");
+
+    MethodSpec.Builder grow = MethodSpec.methodBuilder("grow")
+        .addModifiers(Modifier.PRIVATE)
+        .addStatement("capacity *= 2");
+
+    MethodSpec.Builder clear = MethodSpec.methodBuilder("clear")
+        .addJavadoc("Remove all rows, keeping the allocated arrays.\n")
+        .addModifiers(Modifier.PUBLIC);
+
+    MethodSpec.Builder insert = MethodSpec.methodBuilder("insert")
+        .addJavadoc("Insert the rows in a single transaction.\n\n"
+            + "@return the row ID of each inserted row.\n")
+        .addModifiers(Modifier.PUBLIC)
+        .returns(ArrayTypeName.of(long.class))
+        .addParameter(Clazz.SQLITE_DATABASE, "db")
+        .addStatement("final $T names = new $T()", StringBuilder.class, StringBuilder.class)
+        .addStatement("final $T values = new $T()", StringBuilder.class, StringBuilder.class);
+
+    CodeBlock.Builder bind = CodeBlock.builder();
+
+    for (VariableElement element : columns) {
+      String column = element.getSimpleName().toString();
+      String methodName = CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, column);
+      // Suffixed so columns can not clash with the fields and locals of the batch, e.g. size
+      String fieldName = methodName + "Column";
+      String hasName = "has" + CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, column);
+      String setName = methodName + "Set";
+
+      DataType.Type type = element.getAnnotation(DataType.class).value();
+      TypeName valueType;
+      String newArray;
+      String binder;
+      switch (type) {
+        case INTEGER:
+          valueType = TypeName.LONG;
+          newArray = "new long[capacity]";
+          binder = "bindLong";
+          break;
+
+        case REAL:
+          valueType = TypeName.DOUBLE;
+          newArray = "new double[capacity]";
+          binder = "bindDouble";
+          break;
+
+        case BLOB:
+          valueType = ArrayTypeName.of(byte.class);
+          newArray = "new byte[capacity][]";
+          binder = "bindBlob";
+          break;
+
+        default:
+          valueType = ClassName.get(String.class);
+          newArray = "new String[capacity]";
+          binder = "bindString";
+          break;
+      }
+      // Primitive values are marked as set in a bitmap, other values are null when not set
+      boolean primitive = valueType.isPrimitive();
+
+      batch.addField(ArrayTypeName.of(valueType), fieldName, Modifier.PRIVATE)
+          .addField(boolean.class, hasName, Modifier.PRIVATE);
+      constructor.addStatement("$L = $L", fieldName, newArray);
+      grow.addStatement("$L = $T.copyOf($L, capacity)", fieldName, Arrays.class, fieldName);
+
+      MethodSpec.Builder setter = MethodSpec.methodBuilder(methodName)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(batchClassName)
+          .addParameter(valueType, "value")
+          .addStatement("final int row = row()")
+          .addStatement("$L[row] = value", fieldName);
+
+      if (primitive) {
+        batch.addField(ArrayTypeName.of(long.class), setName, Modifier.PRIVATE);
+        constructor.addStatement("$L = new long[(capacity + 63) / 64]", setName);
+        grow.addStatement("$L = $T.copyOf($L, (capacity + 63) / 64)", setName, Arrays.class,
+            setName);
+        setter.addStatement("$L[row >> 6] |= 1L << row", setName);
+        clear.addStatement("$T.fill($L, 0L)", Arrays.class, setName);
+        bind.beginControlFlow("if ($L)", hasName)
+            .beginControlFlow("if (($L[row >> 6] & (1L << row)) != 0)", setName);
+      } else {
+        clear.addStatement("$T.fill($L, 0, size, null)", Arrays.class, fieldName);
+        bind.beginControlFlow("if ($L)", hasName)
+            .beginControlFlow("if ($L[row] != null)", fieldName);
+      }
+      bind.addStatement("statement.$L(index, $L[row])", binder, fieldName)
+          .nextControlFlow("else")
+          .addStatement("statement.bindNull(index)")
+          .endControlFlow()
+          .addStatement("index++")
+          .endControlFlow();
+
+      batch.addMethod(setter.addStatement("$L = true", hasName)
+          .addStatement("return this")
+          .build());
+      clear.addStatement("$L = false", hasName);
+      insert.beginControlFlow("if ($L)", hasName)
+          .addStatement("appendColumn(names, values, $T.$L)", columnsClassName, column)
+          .endControlFlow();
+    }
+
+    batch.addMethod(constructor.build());
+
+    batch.addMethod(MethodSpec.methodBuilder("add")
+        .addJavadoc("Start a new row. Values set after this call are set on the new row.\n")
+        .addModifiers(Modifier.PUBLIC)
+        .returns(batchClassName)
+        .beginControlFlow("if (size == capacity)")
+        .addStatement("grow()")
+        .endControlFlow()
+        .addStatement("size++")
+        .addStatement("return this")
+        .build());
+
+    batch.addMethod(MethodSpec.methodBuilder("size")
+        .addModifiers(Modifier.PUBLIC)
+        .returns(int.class)
+        .addStatement("return size")
+        .build());
+
+    batch.addMethod(clear.addStatement("size = 0").build());
+
+    batch.addMethod(insert.addStatement("final String sql = names.length() == 0\n"
+        + "? $S\n"
+        + ": \"INSERT INTO $L (\" + names + \") VALUES (\" + values + \")\"",
+        "INSERT INTO " + this.name + " DEFAULT VALUES", this.name)
+        .addStatement("final long[] ids = new long[size]")
+        .addStatement("final $T statement = db.compileStatement(sql)", Clazz.SQLITE_STATEMENT)
+        .addStatement("db.beginTransaction()")
+        .beginControlFlow("try")
+        .beginControlFlow("for (int row = 0; row < size; row++)")
+        .addStatement("int index = 1")
+        .addCode(bind.build())
+        .addStatement("ids[row] = statement.executeInsert()")
+        .endControlFlow()
+        .addStatement("db.setTransactionSuccessful()")
+        .nextControlFlow("finally")
+        .addStatement("db.endTransaction()")
+        .addStatement("statement.close()")
+        .endControlFlow()
+        .addStatement("return ids")
+        .build());
+
+    batch.addMethod(grow.build());
+
+    batch.addMethod(MethodSpec.methodBuilder("row")
+        .addModifiers(Modifier.PRIVATE)
+        .returns(int.class)
+        .beginControlFlow("if (size == 0)")
+        .addStatement("throw new $T(\"add() must be called before setting values\")",
+            IllegalStateException.class)
+        .endControlFlow()
+        .addStatement("return size - 1")
+        .build());
+
+    batch.addMethod(MethodSpec.methodBuilder("appendColumn")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addParameter(StringBuilder.class, "names")
+        .addParameter(StringBuilder.class, "values")
+        .addParameter(String.class, "column")
+        .beginControlFlow("if (names.length() > 0)")
+        .addStatement("names.append(',')")
+        .addStatement("values.append(',')")
+        .endControlFlow()
+        .addStatement("names.append(column)")
+        .addStatement("values.append('?')")
+        .build());
+
+    JavaFile javaFile = JavaFile.builder(valuesPackage, batch.build()).build();
+    javaFile.writeTo(out);
+    out.flush();
+    out.close();
+  }
+
   private MethodSpec makePutMethodSpec(String valuesPackage, String className, String elmName, String column, Type paramType) {
     return MethodSpec.methodBuilder(elmName)
         .addModifiers(Modifier.PUBLIC)
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Writes a {@code match(Uri)} method that replaces {@code UriMatcher}. All paths are known at
+ * compile time, so they are compiled into a tree of switch statements: first on the number of path
+ * segments, then on each segment. Exact segments take precedence over {@code #}, which takes
+ * precedence over {@code *}.
+ */
+public class UriMatcherWriter {
+
+  private static final String NO_MATCH = "NO_MATCH";
+
+  // Nodes written to a single method. Each node compiles to a few dozen bytes, larger switches
+  // are split across methods to stay below the 64KB limit on the size of a method.
+  private static final int MAX_METHOD_NODES = 500;
+
+  private static class Node {
+
+    String match;
+
+    Map<String, Node> exact = new TreeMap<>();
+
+    Node number;
+
+    Node text;
+
+    Node child(String segment) {
+      Node child;
+      if ("#".equals(segment)) {
+        if (number == null) {
+          number = new Node();
+        }
+        child = number;
+      } else if ("*".equals(segment)) {
+        if (text == null) {
+          text = new Node();
+        }
+        child = text;
+      } else {
+        child = exact.get(segment);
+        if (child == null) {
+          child = new Node();
+          exact.put(segment, child);
+        }
+      }
+
+      return child;
+    }
+
+    int size() {
+      int size = 1;
+      for (Node child : exact.values()) {
+        size += child.size();
+      }
+      if (number != null) {
+        size += number.size();
+      }
+      if (text != null) {
+        size += text.size();
+      }
+
+      return size;
+    }
+  }
+
+  // Root node for each segment count
+  private Map<Integer, Node> roots = new TreeMap<>();
+
+  private TypeSpec.Builder typeSpec;
+
+  private int switchMethods;
+
+  /**
+   * Add a path, and the name of the constant returned when it is matched.
+   *
+   * @return false if the path is already matched by another constant.
+   */
+  public boolean addPath(String path, String match) {
+    String[] segments = splitPath(path);
+
+    Node node = roots.get(segments.length);
+    if (node == null) {
+      node = new Node();
+      roots.put(segments.length, node);
+    }
+
+    for (String segment : segments) {
+      node = node.child(segment);
+    }
+
+    if (node.match != null) {
+      return false;
+    }
+
+    node.match = match;
+    return true;
+  }
+
+  private static String[] splitPath(String path) {
+    if (path.startsWith("/")) {
+      path = path.substring(1);
+    }
+    if (path.endsWith("/")) {
+      path = path.substring(0, path.length() - 1);
+    }
+
+    return path.split("/");
+  }
+
+  public void write(TypeSpec.Builder typeSpec) {
+    this.typeSpec = typeSpec;
+
+    typeSpec.addField(FieldSpec.builder(int.class, NO_MATCH, Modifier.PRIVATE, Modifier.STATIC,
+        Modifier.FINAL).initializer("-1").build());
+
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("match")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(int.class)
+        .addParameter(Clazz.URI, "uri")
+        .beginControlFlow("if (!AUTHORITY.equals(uri.getAuthority()))")
+        .addStatement("return $L", NO_MATCH)
+        .endControlFlow()
+        .addStatement("final $T segments = uri.getPathSegments()",
+            ParameterizedTypeName.get(List.class, String.class))
+        .beginControlFlow("switch (segments.size())");
+
+    for (Map.Entry<Integer, Node> entry : roots.entrySet()) {
+      CodeBlock.Builder code = CodeBlock.builder();
+      boolean completesNormally = writeNode(code, entry.getValue(), 0, entry.getKey());
+      spec.beginControlFlow("case $L:", entry.getKey()).addCode(code.build());
+      if (completesNormally) {
+        spec.addStatement("break");
+      }
+      spec.endControlFlow();
+    }
+
+    spec.endControlFlow().addStatement("return $L", NO_MATCH);
+
+    typeSpec.addMethod(spec.build());
+
+    typeSpec.addMethod(MethodSpec.methodBuilder("isNumber")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(boolean.class)
+        .addParameter(String.class, "segment")
+        .beginControlFlow("for (int i = 0, length = segment.length(); i < length; i++)")
+        .addStatement("final char c = segment.charAt(i)")
+        .beginControlFlow("if (c < '0' || c > '9')")
+        .addStatement("return false")
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("return true")
+        .build());
+  }
+
+  /**
+   * Write the code matching the segments from {@code depth} and on.
+   *
+   * @return whether the code can complete normally, i.e. does not always return.
+   */
+  private boolean writeNode(CodeBlock.Builder code, Node node, int depth, int count) {
+    if (depth == count) {
+      code.addStatement("return $L", node.match);
+      return false;
+    }
+
+    String segment = "segments.get(" + depth + ")";
+    if (!node.exact.isEmpty() && node.number != null) {
+      code.addStatement("final String segment$L = $L", depth, segment);
+      segment = "segment" + depth;
+    }
+
+    if (!node.exact.isEmpty()) {
+      List<Map<String, Node>> switches = splitExact(node.exact);
+      if (switches.size() == 1) {
+        writeSwitch(code, switches.get(0), segment, depth, count);
+      } else {
+        for (Map<String, Node> exact : switches) {
+          String method = writeSwitchMethod(exact, depth, count);
+          code.addStatement("final int $L = $L(segments)", method, method);
+          code.beginControlFlow("if ($L != $L)", method, NO_MATCH);
+          code.addStatement("return $L", method);
+          code.endControlFlow();
+        }
+      }
+    }
+
+    if (node.number != null) {
+      code.beginControlFlow("if (isNumber($L))", segment);
+      writeNode(code, node.number, depth + 1, count);
+      code.endControlFlow();
+    }
+
+    if (node.text != null) {
+      return writeNode(code, node.text, depth + 1, count);
+    }
+
+    return true;
+  }
+
+  private void writeSwitch(CodeBlock.Builder code, Map<String, Node> exact, String segment,
+      int depth, int count) {
+    code.beginControlFlow("switch ($L)", segment);
+    for (Map.Entry<String, Node> entry : exact.entrySet()) {
+      code.beginControlFlow("case $S:", entry.getKey());
+      if (writeNode(code, entry.getValue(), depth + 1, count)) {
+        code.addStatement("break");
+      }
+      code.endControlFlow();
+    }
+    code.endControlFlow();
+  }
+
+  /**
+   * Write a method matching a switch on the segment at {@code depth}, which returns
+   * {@code NO_MATCH} if none of the cases match.
+   *
+   * @return the name of the method.
+   */
+  private String writeSwitchMethod(Map<String, Node> exact, int depth, int count) {
+    String name = "match" + ++switchMethods;
+
+    CodeBlock.Builder code = CodeBlock.builder();
+    writeSwitch(code, exact, "segments.get(" + depth + ")", depth, count);
+
+    typeSpec.addMethod(MethodSpec.methodBuilder(name)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .returns(int.class)
+        .addParameter(ParameterizedTypeName.get(List.class, String.class), "segments")
+        .addCode(code.build())
+        .addStatement("return $L", NO_MATCH)
+        .build());
+
+    return name;
+  }
+
+  /**
+   * Split the cases of a switch into groups of up to {@link #MAX_METHOD_NODES} nodes. A single
+   * case with more nodes is split again when its own switches are written.
+   */
+  private static List<Map<String, Node>> splitExact(Map<String, Node> exact) {
+    List<Map<String, Node>> switches = new ArrayList<>();
+    Map<String, Node> current = new TreeMap<>();
+    int size = 0;
+    for (Map.Entry<String, Node> entry : exact.entrySet()) {
+      int nodeSize = entry.getValue().size();
+      if (!current.isEmpty() && size + nodeSize > MAX_METHOD_NODES) {
+        switches.add(current);
+        current = new TreeMap<>();
+        size = 0;
+      }
+      current.put(entry.getKey(), entry.getValue());
+      size += nodeSize;
+    }
+    switches.add(current);
+
+    return switches;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class BatchCommitTest {
+
+  private static final String NOTIFY_AFTER_COMMIT = ""
+      + "      boolean committed = false;\n"
+      + "      try {\n"
+      + "        db.endTransaction();\n"
+      + "        committed = successful;\n"
+      + "      } finally {\n"
+      + "        notifications.endBatch(committed);\n"
+      + "      }\n";
+
+  @Test public void bulkInsertNotifiesAfterCommit() {
+    Compilation compilation = Schemas.compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains(NOTIFY_AFTER_COMMIT + "    }\n    return values.length;");
+  }
+
+  @Test public void applyBatchNotifiesAfterCommit() {
+    Compilation compilation = Schemas.compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains(NOTIFY_AFTER_COMMIT + "    }\n    return results;");
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.JavaFileObjects.forSourceLines;
+
+public class BatchTest {
+
+  @Test public void columnsNamedLikeBatchMembersCompile() {
+    Compilation compilation = Schemas.compile(Arrays.asList(
+        forSourceLines("test.ListColumns",
+            "package test;",
+            "import net.simonvt.schematic.annotation.*;",
+            "import static net.simonvt.schematic.annotation.DataType.Type.*;",
+            "public interface ListColumns {",
+            "  @DataType(INTEGER) @PrimaryKey @AutoIncrement String ID = \"_id\";",
+            "  @DataType(TEXT) String TITLE = \"title\";",
+            "  @DataType(TEXT) String VALUE = \"value\";",
+            "  @DataType(TEXT) String VALUES = \"values\";",
+            "  @DataType(INTEGER) String SIZE = \"size\";",
+            "  @DataType(INTEGER) String CAPACITY = \"capacity\";",
+            "  @DataType(INTEGER) String ROW = \"row\";",
+            "  @DataType(REAL) String INDEX = \"position\";",
+            "  @DataType(BLOB) String STATEMENT = \"statement\";",
+            "}"),
+        Schemas.noteColumns(), Schemas.database("", ""), Schemas.provider("", "")));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.values.ListsBatch")
+        .contentsAsUtf8String()
+        .contains("public ListsBatch size(long value) {");
+  }
+}
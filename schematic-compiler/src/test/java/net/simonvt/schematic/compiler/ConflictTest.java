@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class ConflictTest {
+
+  private static String listsEndpoint(String attributes) {
+    return Schemas.LISTS_ENDPOINT.replace("type = \"vnd.android.cursor.dir/list\"",
+        "type = \"vnd.android.cursor.dir/list\"" + attributes);
+  }
+
+  @Test public void conflictAlgorithmIsApplied() {
+    Compilation compilation = Schemas.compile(Schemas.schema("",
+        listsEndpoint(", onConflict = ConflictResolutionType.IGNORE") + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("new BulkInserter(db, \"lists\", \"IGNORE\", null)");
+  }
+
+  @Test public void rollbackFails() {
+    Compilation compilation = Schemas.compile(Schemas.schema("",
+        listsEndpoint(", onConflict = ConflictResolutionType.ROLLBACK") + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "onConflict ROLLBACK is not supported for test.TestProvider.Lists.CONTENT_URI")
+        .inFile(Schemas.provider("", ""));
+  }
+
+  @Test public void upsertWarnsAboutSqliteVersion() {
+    Compilation compilation = Schemas.compile(Schemas.schema("",
+        listsEndpoint(", upsertColumns = ListColumns.ID") + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningContaining(
+        "upsertColumns of test.TestProvider.Lists.CONTENT_URI require SQLite 3.24");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("new BulkInserter(db, \"lists\", null, new String[] {\"_id\"})");
+  }
+
+  @Test public void conflictAlgorithmAndUpsertFail() {
+    Compilation compilation = Schemas.compile(Schemas.schema("",
+        listsEndpoint(", onConflict = ConflictResolutionType.REPLACE,"
+            + " upsertColumns = ListColumns.ID") + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "Both onConflict and upsertColumns set for test.TestProvider.Lists.CONTENT_URI");
+  }
+}
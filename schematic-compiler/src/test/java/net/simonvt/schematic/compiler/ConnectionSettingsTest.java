@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class ConnectionSettingsTest {
+
+  @Test public void noSettingsByDefault() {
+    Compilation compilation = Schemas.compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestDatabase")
+        .contentsAsUtf8String()
+        .doesNotContain("onConfigure");
+  }
+
+  @Test public void settingsAreAppliedBeforeOnConfigure() {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns(),
+        Schemas.database(", writeAheadLogging = true, pageSize = 8192, cacheSize = -2000,"
+                + " synchronous = Database.Synchronous.NORMAL, mmapSize = 0,"
+                + " tempStore = Database.TempStore.MEMORY",
+            "@OnConfigure public static void onConfigure(SQLiteDatabase db) {}")));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestDatabase")
+        .contentsAsUtf8String()
+        .containsMatch("(?s)public void onConfigure\\(SQLiteDatabase db\\) \\{"
+            + "\\s+db\\.execSQL\\(\"PRAGMA page_size=8192\"\\);"
+            + "\\s+db\\.enableWriteAheadLogging\\(\\);"
+            + "\\s+db\\.execSQL\\(\"PRAGMA synchronous=NORMAL\"\\);"
+            + "\\s+db\\.execSQL\\(\"PRAGMA cache_size=-2000\"\\);"
+            + "\\s+Cursor mmapSize = db\\.rawQuery\\(\"PRAGMA mmap_size=0\", null\\);"
+            + ".*db\\.execSQL\\(\"PRAGMA temp_store=MEMORY\"\\);"
+            + "\\s+test\\.TestDatabase\\.onConfigure\\(db\\);");
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class IncrementalTest {
+
+  @Test public void registeredAsAggregating() throws IOException {
+    String processors = Resources.toString(
+        Resources.getResource("META-INF/gradle/incremental.annotation.processors"),
+        Charsets.UTF_8);
+    assertThat(processors).contains(SchematicProcessor.class.getName() + ",aggregating");
+  }
+
+  @Test public void generatedFilesRecordOriginatingElements() {
+    RecordingProcessor processor = new RecordingProcessor();
+    Compilation compilation = Compiler.javac().withProcessors(processor).compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+
+    assertThat(processor.originatingTypes.get("test.generated.TestProvider"))
+        .containsAllOf("test.TestProvider", "test.TestDatabase", "test.ListColumns",
+            "test.NoteColumns");
+    assertThat(processor.originatingTypes.get("test.generated.TestDatabase"))
+        .containsAllOf("test.TestDatabase", "test.ListColumns", "test.NoteColumns");
+    assertThat(processor.originatingTypes.get("test.generated.values.NotesReader"))
+        .containsAllOf("test.TestDatabase", "test.NoteColumns");
+  }
+
+  /** Records the types each source file is generated from. */
+  private static final class RecordingProcessor extends SchematicProcessor {
+
+    final Map<String, Set<String>> originatingTypes = new HashMap<>();
+
+    @Override public synchronized void init(final ProcessingEnvironment env) {
+      final Filer filer = env.getFiler();
+      final Filer recordingFiler = new Filer() {
+        @Override public JavaFileObject createSourceFile(CharSequence name,
+            Element... originatingElements) throws IOException {
+          Set<String> types = new HashSet<>();
+          for (Element element : originatingElements) {
+            while (!(element instanceof TypeElement)) {
+              element = element.getEnclosingElement();
+            }
+            types.add(((TypeElement) element).getQualifiedName().toString());
+          }
+          originatingTypes.put(name.toString(), types);
+          return filer.createSourceFile(name, originatingElements);
+        }
+
+        @Override public JavaFileObject createClassFile(CharSequence name,
+            Element... originatingElements) throws IOException {
+          return filer.createClassFile(name, originatingElements);
+        }
+
+        @Override public FileObject createResource(JavaFileManager.Location location,
+            CharSequence pkg, CharSequence relativeName, Element... originatingElements)
+            throws IOException {
+          return filer.createResource(location, pkg, relativeName, originatingElements);
+        }
+
+        @Override public FileObject getResource(JavaFileManager.Location location,
+            CharSequence pkg, CharSequence relativeName) throws IOException {
+          return filer.getResource(location, pkg, relativeName);
+        }
+      };
+
+      super.init(new ProcessingEnvironment() {
+        @Override public Map<String, String> getOptions() {
+          return env.getOptions();
+        }
+
+        @Override public Messager getMessager() {
+          return env.getMessager();
+        }
+
+        @Override public Filer getFiler() {
+          return recordingFiler;
+        }
+
+        @Override public Elements getElementUtils() {
+          return env.getElementUtils();
+        }
+
+        @Override public Types getTypeUtils() {
+          return env.getTypeUtils();
+        }
+
+        @Override public SourceVersion getSourceVersion() {
+          return env.getSourceVersion();
+        }
+
+        @Override public Locale getLocale() {
+          return env.getLocale();
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class IndexTest {
+
+  @Test public void indexedColumnIsCreatedInOnCreate() {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns(), Schemas.database("", "")));
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation).generatedSourceFile("test.generated.TestDatabase")
+        .contentsAsUtf8String()
+        .contains("INDEX_NOTES_LISTID = \"CREATE INDEX notes_listId ON notes (listId)\"");
+    assertThat(compilation).generatedSourceFile("test.generated.TestDatabase")
+        .contentsAsUtf8String()
+        .containsMatch("(?s)db\\.execSQL\\(NOTES\\);\\s+db\\.execSQL\\(INDEX_NOTES_LISTID\\);");
+  }
+
+  @Test public void unindexedForeignKeyWarns() {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns(""), Schemas.database("", "")));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningContaining("Foreign key [listId] in test.NoteColumns is not "
+        + "indexed").inFile(Schemas.noteColumns(""));
+  }
+
+  @Test public void unknownColumnFails() {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns("@Index(columns = \"missing\")"), Schemas.database("", "")));
+    assertThat(compilation).hadErrorContaining("references unknown column missing");
+  }
+}
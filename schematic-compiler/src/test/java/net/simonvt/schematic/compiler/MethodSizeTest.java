@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.common.base.Strings;
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class MethodSizeTest {
+
+  @Test public void methodLargerThanBudgetFails() {
+    Compilation compilation =
+        Schemas.compile(Schemas.schema(), "-Aschematic.maxMethodSize=1");
+    assertThat(compilation).failed();
+    assertThat(compilation)
+        .hadErrorContaining("more than the 1 allowed by schematic.maxMethodSize");
+  }
+
+  @Test public void methodsWithinBudgetSucceed() {
+    Compilation compilation =
+        Schemas.compile(Schemas.schema(), "-Aschematic.maxMethodSize=8000");
+    assertThat(compilation).succeeded();
+  }
+
+  @Test public void literalsAreNotCounted() {
+    // 1000 semicolons in the default sort would be estimated at 12000 bytes if counted
+    String sort = "title ASC /* " + Strings.repeat(";", 1000) + " */";
+    String endpoints = Schemas.LISTS_ENDPOINT.replace("type = \"vnd.android.cursor.dir/list\"",
+        "type = \"vnd.android.cursor.dir/list\", defaultSort = \"" + sort + "\"")
+        + Schemas.NOTES_ENDPOINT;
+    Compilation compilation =
+        Schemas.compile(Schemas.schema("", endpoints), "-Aschematic.maxMethodSize=8000");
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains(sort);
+  }
+}
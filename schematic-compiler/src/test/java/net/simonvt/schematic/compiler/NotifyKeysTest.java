@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class NotifyKeysTest {
+
+  private static String notesEndpoint(String notifyMethods) {
+    return Schemas.NOTES_ENDPOINT.substring(0, Schemas.NOTES_ENDPOINT.lastIndexOf('}'))
+        + notifyMethods
+        + "}\n";
+  }
+
+  @Test public void keysAreReadBeforeWriteAndPassedToNotifyMethod() {
+    String endpoints = Schemas.LISTS_ENDPOINT + notesEndpoint(""
+        + "@NotifyUpdate(paths = \"notes/#\", keyColumns = NoteColumns.LIST_ID)\n"
+        + "public static Uri[] onUpdate(Uri uri, long[] listIds) {\n"
+        + "  return new Uri[] { uri };\n"
+        + "}\n"
+        + "@NotifyDelete(paths = \"notes/#\",\n"
+        + "    keyColumns = { NoteColumns.LIST_ID, NoteColumns.ID })\n"
+        + "public static Uri[] onDelete(long[] listIds, long[] ids) {\n"
+        + "  return new Uri[0];\n"
+        + "}\n");
+    Compilation compilation = Schemas.compile(Schemas.schema("", endpoints));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("final long[][] keys = builder.table(\"notes\").queryKeys(db, \"listId\");");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("notifyUris = test.TestProvider.Notes.onUpdate(uri, keys[0]);");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("queryKeys(db, \"listId\", \"_id\");");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("notifyUris = test.TestProvider.Notes.onDelete(keys[0], keys[1]);");
+  }
+
+  @Test public void keyColumnWithoutParameterFails() {
+    String endpoints = Schemas.LISTS_ENDPOINT + notesEndpoint(""
+        + "@NotifyUpdate(paths = \"notes/#\", keyColumns = NoteColumns.LIST_ID)\n"
+        + "public static Uri[] onUpdate(Uri uri) {\n"
+        + "  return new Uri[] { uri };\n"
+        + "}\n");
+    Compilation compilation = Schemas.compile(Schemas.schema("", endpoints));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "test.TestProvider.Notes.onUpdate declares 1 keyColumns, but only has 0 long[] parameters");
+  }
+}
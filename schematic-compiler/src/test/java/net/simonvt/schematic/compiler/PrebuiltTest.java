@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrebuiltTest {
+
+  private static final String EXEC_ON_CREATE = ""
+      + "@ExecOnCreate public static final String INSERT_LIST =\n"
+      + "    \"INSERT INTO lists (title) VALUES ('Inbox')\";";
+
+  @Test public void databaseIsWrittenToClassOutput() throws Exception {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns(), Schemas.database(", prebuilt = true", EXEC_ON_CREATE),
+        Schemas.provider("", Schemas.LISTS_ENDPOINT + Schemas.NOTES_ENDPOINT)));
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation).generatedSourceFile("test.generated.TestDatabase")
+        .contentsAsUtf8String()
+        .contains("PrebuiltDatabase.install(this.context, \"schematic/testDatabase.db\", "
+            + "\"testDatabase.db\");");
+
+    JavaFileObject resource = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+        "schematic/testDatabase.db").get();
+    File file = File.createTempFile("prebuilt", ".db");
+    try {
+      try (InputStream in = resource.openInputStream()) {
+        Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+           Statement statement = connection.createStatement()) {
+        try (ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+          assertTrue(result.next());
+          assertEquals(1, result.getInt(1));
+        }
+        try (ResultSet result = statement.executeQuery(
+            "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'notes'")) {
+          assertTrue(result.next());
+        }
+        try (ResultSet result = statement.executeQuery("SELECT title FROM lists")) {
+          assertTrue(result.next());
+          assertEquals("Inbox", result.getString(1));
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test public void onCreateFails() {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns(), Schemas.database(", prebuilt = true",
+            "@OnCreate public static void onCreate(Context context, SQLiteDatabase db) {}"),
+        Schemas.provider("", Schemas.LISTS_ENDPOINT + Schemas.NOTES_ENDPOINT)));
+    assertThat(compilation).hadErrorContaining(
+        "OnCreate methods can not be run for a prebuilt database");
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class PrewarmTest {
+
+  private static final String LISTS_SORTED = ""
+      + "@TableEndpoint(table = TestDatabase.LISTS) public static class Lists {\n"
+      + "  @MapColumns public static Map<String, String> mapColumns() {\n"
+      + "    return java.util.Collections.singletonMap(\"upperTitle\", \"UPPER(title)\");\n"
+      + "  }\n"
+      + "  @ContentUri(path = \"lists\", type = \"vnd.android.cursor.dir/list\",\n"
+      + "      defaultSort = \"title ASC\")\n"
+      + "  public static final Uri CONTENT_URI = Uri.parse(\"content://test.provider/lists\");\n"
+      + "  @Where(path = \"lists\") public static String[] titled() {\n"
+      + "    return new String[] { \"title IS NOT NULL\" };\n"
+      + "  }\n"
+      + "}\n";
+
+  @Test public void queriesAreBuiltByQueryMethods() {
+    Compilation compilation = Schemas.compile(
+        Schemas.schema(", prewarm = true", LISTS_SORTED + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("return prewarmStatements();");
+    // Built by the select methods the query methods use, with the projection map of the endpoint
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("prewarmQuery(selectListsContentUri(Uri.parse(\"content://\" + AUTHORITY + "
+            + "\"/lists\"), null, null), LISTS_PROJECTION_MAP, null, null, \"title ASC\", null)");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("prewarmQuery(selectNotesNoteId(Uri.parse(\"content://\" + AUTHORITY + "
+            + "\"/notes/0\"), null, null), null, null, null, null, null)");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("final SelectionBuilder builder = selectListsContentUri(uri, selection, "
+            + "selectionArgs);");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("String[] wheres = test.TestProvider.Lists.titled(");
+  }
+
+  @Test public void noPrewarmByDefault() {
+    Compilation compilation = Schemas.compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .doesNotContain("prewarm");
+  }
+}
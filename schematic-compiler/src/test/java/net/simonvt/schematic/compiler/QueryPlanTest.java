@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class QueryPlanTest {
+
+  private static final String LISTS_BY_TITLE = ""
+      + "@TableEndpoint(table = TestDatabase.LISTS) public static class Lists {\n"
+      + "  @InexactContentUri(path = \"lists/*\", name = \"LISTS_TITLED\",\n"
+      + "      type = \"vnd.android.cursor.dir/list\", whereColumn = ListColumns.TITLE,\n"
+      + "      pathSegment = 1)\n"
+      + "  public static Uri titled(String title) {\n"
+      + "    return Uri.parse(\"content://test.provider/lists/\" + title);\n"
+      + "  }\n"
+      + "}\n";
+
+  private static final String LISTS_BY_MAPPED_COLUMN = ""
+      + "@TableEndpoint(table = TestDatabase.LISTS) public static class Lists {\n"
+      + "  @MapColumns public static Map<String, String> mapColumns() {\n"
+      + "    return java.util.Collections.singletonMap(\"upperTitle\", \"UPPER(title)\");\n"
+      + "  }\n"
+      + "  @ContentUri(path = \"lists\", type = \"vnd.android.cursor.dir/list\",\n"
+      + "      defaultSort = \"upperTitle ASC\")\n"
+      + "  public static final Uri CONTENT_URI = Uri.parse(\"content://test.provider/lists\");\n"
+      + "}\n";
+
+  @Test public void notCheckedByDefault() {
+    Compilation compilation =
+        Schemas.compile(Schemas.schema("", LISTS_BY_TITLE + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningCount(0);
+  }
+
+  @Test public void scanIsReported() {
+    Compilation compilation =
+        Schemas.compile(Schemas.schema("", LISTS_BY_TITLE + Schemas.NOTES_ENDPOINT),
+            "-Aschematic.queryPlan=warn");
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningContaining("Query for path lists/* scans a table");
+  }
+
+  @Test public void indexedQueryIsNotReported() {
+    Compilation compilation = Schemas.compile(Schemas.schema(), "-Aschematic.queryPlan=error");
+    assertThat(compilation).succeededWithoutWarnings();
+  }
+
+  @Test public void uncheckedQueryIsReportedAsError() {
+    Compilation compilation =
+        Schemas.compile(Schemas.schema("", LISTS_BY_MAPPED_COLUMN + Schemas.NOTES_ENDPOINT),
+            "-Aschematic.queryPlan=error");
+    assertThat(compilation).hadErrorContaining("Unable to check the query plan for path lists");
+  }
+}
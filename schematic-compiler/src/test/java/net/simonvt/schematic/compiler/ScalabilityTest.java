@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.JavaFileObjects.forSourceString;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Processes schemas of 10, 100 and 1000 tables, each with a cacheable directory and item URI, and
+ * checks that the code generated for them grows linearly with the size of the schema.
+ * <p>
+ * The time spent in the processor is measured by {@link #processingTimeGrowsLinearly()}, which
+ * only runs with {@code -Dschematic.benchmark=true}, e.g. {@code ./gradlew test -Pbenchmark}.
+ */
+public class ScalabilityTest {
+
+  private static final int[] TABLES = { 10, 100, 1000 };
+
+  // Length of the chains of tables referencing the previous table, which a write cascades through
+  private static final int CHAIN = 5;
+
+  @Test public void generatedCodeGrowsLinearly() throws IOException {
+    int[] statements = new int[TABLES.length];
+    for (int i = 0; i < TABLES.length; i++) {
+      Compilation compilation = Compiler.javac()
+          .withProcessors(new SchematicProcessor())
+          .compile(schema(TABLES[i]));
+      assertThat(compilation).succeeded();
+      statements[i] = statements(compilation, "TestProvider")
+          + statements(compilation, "TestDatabase");
+    }
+
+    // Ten times as many tables and URIs, plus a fixed part. Code generated for each pair of tables
+    // would grow a hundred times.
+    for (int i = 1; i < TABLES.length; i++) {
+      assertThat(statements[i]).isGreaterThan(statements[i - 1]);
+      assertThat(statements[i]).isAtMost(11 * statements[i - 1]);
+    }
+  }
+
+  @Test public void processingTimeGrowsLinearly() {
+    assumeTrue(Boolean.getBoolean("schematic.benchmark"));
+
+    // The first compilation warms up the processor and the compiler
+    processingMillis(TABLES[TABLES.length - 1]);
+
+    long[] millis = new long[TABLES.length];
+    for (int i = 0; i < TABLES.length; i++) {
+      millis[i] = processingMillis(TABLES[i]);
+      System.out.println("Processed " + TABLES[i] + " tables in " + millis[i] + " ms");
+    }
+  }
+
+  private static int statements(Compilation compilation, String className) throws IOException {
+    JavaFileObject source = compilation.generatedFile(StandardLocation.SOURCE_OUTPUT,
+        "test.generated", className + ".java").get();
+    return ContentProviderWriter.countStatements(source.getCharContent(true).toString());
+  }
+
+  private static long processingMillis(int tableCount) {
+    TimedProcessor processor = new TimedProcessor();
+    Compilation compilation =
+        Compiler.javac().withProcessors(processor).compile(schema(tableCount));
+    assertThat(compilation).succeeded();
+    return TimeUnit.NANOSECONDS.toMillis(processor.nanos);
+  }
+
+  /**
+   * Tables with a directory and an item URI each, in chains of tables referencing the previous
+   * table. The provider caches queries and notifies the URIs reading the tables a write changes.
+   */
+  private static List<JavaFileObject> schema(int tableCount) {
+    List<JavaFileObject> sources = new ArrayList<>();
+    StringBuilder database = new StringBuilder()
+        .append("package test;\n")
+        .append("import net.simonvt.schematic.annotation.*;\n")
+        .append("@Database(version = 1, packageName = \"test.generated\")\n")
+        .append("public final class TestDatabase {\n");
+    StringBuilder provider = new StringBuilder()
+        .append("package test;\n")
+        .append("import android.net.Uri;\n")
+        .append("import net.simonvt.schematic.annotation.*;\n")
+        .append("@ContentProvider(authority = \"test.provider\", database = TestDatabase.class,\n")
+        .append("    packageName = \"test.generated\", notifyDependentUris = true)\n")
+        .append("public final class TestProvider {\n");
+
+    for (int i = 0; i < tableCount; i++) {
+      String table = "table" + i;
+      StringBuilder columns = new StringBuilder()
+          .append("package test;\n")
+          .append("import net.simonvt.schematic.annotation.*;\n")
+          .append("import static net.simonvt.schematic.annotation.DataType.Type.*;\n")
+          .append("public interface Columns").append(i).append(" {\n")
+          .append("  @DataType(INTEGER) @PrimaryKey String ID = \"_id\";\n")
+          .append("  @DataType(TEXT) String TITLE = \"title\";\n");
+      if (i % CHAIN > 0) {
+        columns.append("  @DataType(INTEGER) @References(table = \"table").append(i - 1)
+            .append("\", column = \"_id\") @Index String PARENT_ID = \"parentId\";\n");
+      }
+      sources.add(forSourceString("test.Columns" + i, columns.append("}\n").toString()));
+
+      database.append("  @Table(Columns").append(i).append(".class) public static final String ")
+          .append(table.toUpperCase()).append(" = \"").append(table).append("\";\n");
+
+      provider.append("  @TableEndpoint(table = \"").append(table)
+          .append("\") public static class Table").append(i).append(" {\n")
+          .append("    @ContentUri(path = \"").append(table)
+          .append("\", type = \"vnd.android.cursor.dir/").append(table)
+          .append("\", cacheable = true)\n")
+          .append("    public static final Uri CONTENT_URI = Uri.parse(\"content://test.provider/")
+          .append(table).append("\");\n")
+          .append("    @InexactContentUri(path = \"").append(table).append("/#\", name = \"")
+          .append(table.toUpperCase()).append("_ID\", type = \"vnd.android.cursor.item/")
+          .append(table).append("\", whereColumn = \"_id\", pathSegment = 1, cacheable = true)\n")
+          .append("    public static Uri withId(long id) {\n")
+          .append("      return Uri.parse(\"content://test.provider/").append(table)
+          .append("/\" + id);\n")
+          .append("    }\n")
+          .append("  }\n");
+    }
+
+    sources.add(forSourceString("test.TestDatabase", database.append("}\n").toString()));
+    sources.add(forSourceString("test.TestProvider", provider.append("}\n").toString()));
+    return sources;
+  }
+
+  private static final class TimedProcessor extends SchematicProcessor {
+
+    long nanos;
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+      long start = System.nanoTime();
+      try {
+        return super.process(annotations, env);
+      } finally {
+        nanos += System.nanoTime() - start;
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.JavaFileObjects.forSourceLines;
+
+/**
+ * Sources of a small schema of lists and notes, compiled with the processor in tests. The
+ * generated classes are written to the {@code test.generated} package.
+ */
+final class Schemas {
+
+  static final String LISTS_ENDPOINT = ""
+      + "@TableEndpoint(table = TestDatabase.LISTS) public static class Lists {\n"
+      + "  @ContentUri(path = \"lists\", type = \"vnd.android.cursor.dir/list\")\n"
+      + "  public static final Uri CONTENT_URI = Uri.parse(\"content://test.provider/lists\");\n"
+      + "}\n";
+
+  static final String NOTES_ENDPOINT = ""
+      + "@TableEndpoint(table = TestDatabase.NOTES) public static class Notes {\n"
+      + "  @ContentUri(path = \"notes\", type = \"vnd.android.cursor.dir/note\")\n"
+      + "  public static final Uri CONTENT_URI = Uri.parse(\"content://test.provider/notes\");\n"
+      + "  @InexactContentUri(path = \"notes/#\", name = \"NOTE_ID\",\n"
+      + "      type = \"vnd.android.cursor.item/note\", whereColumn = NoteColumns.ID,\n"
+      + "      pathSegment = 1)\n"
+      + "  public static Uri withId(long id) {\n"
+      + "    return Uri.parse(\"content://test.provider/notes/\" + id);\n"
+      + "  }\n"
+      + "}\n";
+
+  private Schemas() {
+  }
+
+  static JavaFileObject listColumns() {
+    return forSourceLines("test.ListColumns",
+        "package test;",
+        "import net.simonvt.schematic.annotation.*;",
+        "import static net.simonvt.schematic.annotation.DataType.Type.*;",
+        "public interface ListColumns {",
+        "  @DataType(INTEGER) @PrimaryKey @AutoIncrement String ID = \"_id\";",
+        "  @DataType(TEXT) @NotNull String TITLE = \"title\";",
+        "}");
+  }
+
+  static JavaFileObject noteColumns() {
+    return noteColumns("@Index");
+  }
+
+  /** Columns of the notes table, with {@code listIdAnnotations} added to its list ID column. */
+  static JavaFileObject noteColumns(String listIdAnnotations) {
+    return forSourceLines("test.NoteColumns",
+        "package test;",
+        "import net.simonvt.schematic.annotation.*;",
+        "import static net.simonvt.schematic.annotation.DataType.Type.*;",
+        "public interface NoteColumns {",
+        "  @DataType(INTEGER) @PrimaryKey @AutoIncrement String ID = \"_id\";",
+        "  @DataType(INTEGER) @References(table = \"lists\", column = ListColumns.ID)",
+        "  " + listIdAnnotations + " String LIST_ID = \"listId\";",
+        "  @DataType(TEXT) String NOTE = \"note\";",
+        "}");
+  }
+
+  /**
+   * A database with a lists and a notes table.
+   *
+   * @param attributes Added to the {@code @Database} annotation, e.g. {@code ", prebuilt = true"}.
+   * @param members Added to the body of the class.
+   */
+  static JavaFileObject database(String attributes, String members) {
+    return forSourceLines("test.TestDatabase",
+        "package test;",
+        "import android.content.Context;",
+        "import android.database.sqlite.SQLiteDatabase;",
+        "import net.simonvt.schematic.annotation.*;",
+        "@Database(version = 1, packageName = \"test.generated\"" + attributes + ")",
+        "public final class TestDatabase {",
+        "  @Table(ListColumns.class) public static final String LISTS = \"lists\";",
+        "  @Table(NoteColumns.class) public static final String NOTES = \"notes\";",
+        members,
+        "}");
+  }
+
+  /**
+   * A provider for {@link #database(String, String)}.
+   *
+   * @param attributes Added to the {@code @ContentProvider} annotation.
+   * @param endpoints The table endpoints of the provider.
+   */
+  static JavaFileObject provider(String attributes, String endpoints) {
+    return forSourceLines("test.TestProvider",
+        "package test;",
+        "import android.net.Uri;",
+        "import java.util.Map;",
+        "import net.simonvt.schematic.annotation.*;",
+        "@ContentProvider(authority = \"test.provider\", database = TestDatabase.class,",
+        "    packageName = \"test.generated\"" + attributes + ")",
+        "public final class TestProvider {",
+        endpoints,
+        "}");
+  }
+
+  /** The lists and notes tables, with a provider of the default endpoints. */
+  static List<JavaFileObject> schema() {
+    return schema("", LISTS_ENDPOINT + NOTES_ENDPOINT);
+  }
+
+  static List<JavaFileObject> schema(String providerAttributes, String endpoints) {
+    return new ArrayList<>(Arrays.asList(listColumns(), noteColumns(), database("", ""),
+        provider(providerAttributes, endpoints)));
+  }
+
+  static Compilation compile(List<JavaFileObject> sources, String... options) {
+    return Compiler.javac()
+        .withProcessors(new SchematicProcessor())
+        .withOptions((Object[]) options)
+        .compile(sources);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import java.util.List;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.JavaFileObjects.forSourceLines;
+
+public class ShardTest {
+
+  /** The default schema, with an endpoint routed to a second database named {@code name}. */
+  private static List<JavaFileObject> shardedSchema(String name) {
+    String endpoints = Schemas.LISTS_ENDPOINT + Schemas.NOTES_ENDPOINT
+        + "@TableEndpoint(table = " + name + ".ARCHIVE, database = " + name + ".class)\n"
+        + "public static class Archive {\n"
+        + "  @ContentUri(path = \"archive\", type = \"vnd.android.cursor.dir/list\")\n"
+        + "  public static final Uri ARCHIVE = Uri.parse(\"content://test.provider/archive\");\n"
+        + "}\n";
+    List<JavaFileObject> sources = Schemas.schema("", endpoints);
+    sources.add(forSourceLines("test." + name,
+        "package test;",
+        "import net.simonvt.schematic.annotation.*;",
+        "@Database(version = 1, packageName = \"test.generated\")",
+        "public final class " + name + " {",
+        "  @Table(ListColumns.class) public static final String ARCHIVE = \"archive\";",
+        "}"));
+    return sources;
+  }
+
+  @Test public void batchEndsOnlyStartedTransactions() {
+    Compilation compilation = Schemas.compile(shardedSchema("ArchiveDatabase"));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("try {\n"
+            + "      // Transactions are started in the same order by every batch, so two batches "
+            + "can not\n"
+            + "      // wait for each other\n"
+            + "      for (; started < dbs.length; started++) {");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("for (int i = started - 1; i >= 0; i--) {");
+  }
+
+  @Test public void databaseClashingWithFieldIsRejected() {
+    Compilation compilation = Schemas.compile(shardedSchema("QueryCache"));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "Database test.QueryCache clashes with the generated member queryCache of TestProvider");
+  }
+
+  @Test public void databaseClashingWithMethodIsRejected() {
+    Compilation compilation = Schemas.compile(shardedSchema("ShardOf"));
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("clashes with the generated member shardOf");
+  }
+
+  @Test public void databaseClashingWithUriMethodIsRejected() {
+    Compilation compilation = Schemas.compile(shardedSchema("QueryArchiveArchive"));
+    assertThat(compilation).failed();
+    assertThat(compilation)
+        .hadErrorContaining("clashes with the generated member queryArchiveArchive");
+  }
+}
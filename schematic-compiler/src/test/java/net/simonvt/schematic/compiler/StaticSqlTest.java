@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class StaticSqlTest {
+
+  private static final String NOTES_IN_LIST = ""
+      + "@TableEndpoint(table = TestDatabase.NOTES) public static class Notes {\n"
+      + "  @InexactContentUri(path = \"lists/#/notes\", name = \"NOTES_IN_LIST\",\n"
+      + "      type = \"vnd.android.cursor.dir/note\", whereColumn = NoteColumns.LIST_ID,\n"
+      + "      pathSegment = 1, where = { \"note IS NOT NULL\", \"lists.title != ''\" },\n"
+      + "      join = \"JOIN lists ON lists._id = notes.listId\")\n"
+      + "  public static Uri inList(long id) {\n"
+      + "    return Uri.parse(\"content://test.provider/lists/\" + id + \"/notes\");\n"
+      + "  }\n"
+      + "}\n";
+
+  @Test public void whereAndJoinAreFoldedIntoConstants() {
+    Compilation compilation =
+        Schemas.compile(Schemas.schema("", Schemas.LISTS_ENDPOINT + NOTES_IN_LIST));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("private static final String NOTES_NOTES_IN_LIST_WHERE = "
+            + "\"(listId=?) AND (note IS NOT NULL) AND (lists.title != '')\";");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("private static final String NOTES_NOTES_IN_LIST_TABLE = "
+            + "\"notes JOIN lists ON lists._id = notes.listId\";");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("builder.where(NOTES_NOTES_IN_LIST_WHERE, uri.getPathSegments().get(1));");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("builder.table(NOTES_NOTES_IN_LIST_TABLE);");
+  }
+
+  @Test public void singleClauseIsNotParenthesized() {
+    Compilation compilation = Schemas.compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("private static final String NOTES_NOTE_ID_WHERE = \"_id=?\";");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .doesNotContain("LISTS_CONTENT_URI_WHERE");
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.JavaFileObjects.forSourceLines;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TableSqlTest {
+
+  private static final JavaFileObject TAG_COLUMNS = forSourceLines("test.TagColumns",
+      "package test;",
+      "import net.simonvt.schematic.annotation.*;",
+      "import static net.simonvt.schematic.annotation.DataType.Type.*;",
+      "@UniqueConstraint(name = \"UNQ_TAG\", columns = { TagColumns.NOTE_ID, TagColumns.NAME })",
+      "@Check(\"length(name) > 0\")",
+      "public interface TagColumns {",
+      "  @DataType(INTEGER) @PrimaryKey @AutoIncrement String ID = \"_id\";",
+      "  @DataType(INTEGER) @References(table = \"notes\", column = NoteColumns.ID)",
+      "  String NOTE_ID = \"noteId\";",
+      "  @DataType(TEXT) @NotNull @DefaultValue(\"'a \\\"tag\\\"'\") String NAME = \"name\";",
+      "}");
+
+  private static final String CREATE_TAGS = "CREATE TABLE tags ("
+      + "_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+      + "noteId INTEGER REFERENCES notes(_id),"
+      + "name TEXT NOT NULL DEFAULT 'a \"tag\"',"
+      + " CHECK ( length(name) > 0 ),"
+      + " CONSTRAINT UNQ_TAG UNIQUE ( noteId, name ))";
+
+  @Test public void constantAndDatabaseShareTheStatement() throws Exception {
+    Compilation compilation = Schemas.compile(Arrays.asList(Schemas.listColumns(),
+        Schemas.noteColumns(), TAG_COLUMNS,
+        Schemas.database(", prebuilt = true",
+            "@Table(TagColumns.class) public static final String TAGS = \"tags\";"),
+        Schemas.provider("", Schemas.LISTS_ENDPOINT + Schemas.NOTES_ENDPOINT)));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestDatabase")
+        .contentsAsUtf8String()
+        .contains("public static final String TAGS = \"CREATE TABLE tags (\"\n"
+            + "   + TagColumns.ID + \" INTEGER PRIMARY KEY AUTOINCREMENT,\"\n"
+            + "   + TagColumns.NOTE_ID + \" INTEGER REFERENCES notes(_id),\"\n"
+            + "   + TagColumns.NAME + \" TEXT NOT NULL DEFAULT 'a \\\"tag\\\"',\"\n"
+            + "   + \" CHECK ( length(name) > 0 ),\"\n"
+            + "   + \" CONSTRAINT UNQ_TAG UNIQUE ( noteId, name ))\";");
+
+    JavaFileObject resource = compilation.generatedFile(StandardLocation.CLASS_OUTPUT,
+        "schematic/testDatabase.db").get();
+    File file = File.createTempFile("tables", ".db");
+    try {
+      try (InputStream in = resource.openInputStream()) {
+        Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+           Statement statement = connection.createStatement();
+           ResultSet result = statement.executeQuery(
+               "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'tags'")) {
+        assertTrue(result.next());
+        assertEquals(CREATE_TAGS, result.getString(1));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.compiler;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+
+public class YieldTest {
+
+  @Test public void noYieldByDefault() {
+    Compilation compilation = Schemas.compile(Schemas.schema());
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .doesNotContain("yieldIfContendedSafely()) {");
+  }
+
+  @Test public void providerYieldsEveryNRows() {
+    Compilation compilation = Schemas.compile(Schemas.schema(", yieldEvery = 100",
+        Schemas.LISTS_ENDPOINT + Schemas.NOTES_ENDPOINT));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("insertValues(db, new BulkInserter(db, \"notes\"), values, 100)");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("if (i > 0 && (i % 100 == 0 || op.isYieldAllowed()))");
+  }
+
+  @Test public void tableEndpointOverridesProvider() {
+    String endpoints = Schemas.LISTS_ENDPOINT
+        + Schemas.NOTES_ENDPOINT.replace("table = TestDatabase.NOTES",
+        "table = TestDatabase.NOTES, yieldEvery = 10");
+    Compilation compilation = Schemas.compile(Schemas.schema(", yieldEvery = 100", endpoints));
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("insertValues(db, new BulkInserter(db, \"notes\"), values, 10)");
+    assertThat(compilation).generatedSourceFile("test.generated.TestProvider")
+        .contentsAsUtf8String()
+        .contains("insertValues(db, new BulkInserter(db, \"lists\"), values, 100)");
+  }
+}
@@ -19,21 +19,24 @@ package net.simonvt.schematic.sample.database;
 import net.simonvt.schematic.annotation.AutoIncrement;
 import net.simonvt.schematic.annotation.Check;
 import net.simonvt.schematic.annotation.DataType;
+import net.simonvt.schematic.annotation.Index;
 import net.simonvt.schematic.annotation.PrimaryKey;
 import net.simonvt.schematic.annotation.References;
+import net.simonvt.schematic.annotation.RowModel;
 import net.simonvt.schematic.sample.database.NotesDatabase.Tables;
 
 import static net.simonvt.schematic.annotation.DataType.Type.INTEGER;
 import static net.simonvt.schematic.annotation.DataType.Type.TEXT;
 
+@RowModel
 public interface NoteColumns {
   String STATUS_NEW = "new";
   String STATUS_COMPLETED = "completed";
 
   @DataType(INTEGER) @PrimaryKey @AutoIncrement String ID = "_id";
 
-  @DataType(INTEGER) @References(table = Tables.LISTS, column = ListColumns.ID) String LIST_ID =
-      "listId";
+  @DataType(INTEGER) @References(table = Tables.LISTS, column = ListColumns.ID) @Index
+  String LIST_ID = "listId";
 
   @DataType(TEXT) String NOTE = "note";
 
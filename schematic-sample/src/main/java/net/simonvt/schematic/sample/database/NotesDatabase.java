@@ -33,7 +33,7 @@ public final class NotesDatabase {
   private NotesDatabase() {
   }
 
-  public static final int VERSION = 1;
+  public static final int VERSION = 2;
 
   public static class Tables {
 
@@ -49,6 +49,14 @@ public final class NotesDatabase {
 
   @OnUpgrade public static void onUpgrade(Context context, SQLiteDatabase db, int oldVersion,
       int newVersion) {
+    if (oldVersion < 2) {
+      // Indexes are only created in onCreate, the index on listId was added in version 2
+      db.execSQL("CREATE INDEX IF NOT EXISTS notes_listId ON "
+          + NOTES
+          + " ("
+          + NoteColumns.LIST_ID
+          + ")");
+    }
   }
 
   @OnConfigure public static void onConfigure(SQLiteDatabase db) {
@@ -16,9 +16,6 @@
 
 package net.simonvt.schematic.sample.database;
 
-import android.content.ContentValues;
-import android.content.Context;
-import android.database.Cursor;
 import android.net.Uri;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,10 +23,6 @@ import net.simonvt.schematic.annotation.ContentProvider;
 import net.simonvt.schematic.annotation.ContentUri;
 import net.simonvt.schematic.annotation.InexactContentUri;
 import net.simonvt.schematic.annotation.MapColumns;
-import net.simonvt.schematic.annotation.NotifyBulkInsert;
-import net.simonvt.schematic.annotation.NotifyDelete;
-import net.simonvt.schematic.annotation.NotifyInsert;
-import net.simonvt.schematic.annotation.NotifyUpdate;
 import net.simonvt.schematic.annotation.TableEndpoint;
 import net.simonvt.schematic.sample.BuildConfig;
 import net.simonvt.schematic.sample.database.NotesDatabase.Tables;
@@ -37,7 +30,9 @@ import net.simonvt.schematic.sample.database.NotesDatabase.Tables;
 @ContentProvider(
     authority = NotesProvider.AUTHORITY,
     database = NotesDatabase.class,
-    packageName = "net.simonvt.schematic.sample.provider"
+    packageName = "net.simonvt.schematic.sample.provider",
+    notifyDependentUris = true,
+    prewarm = true
 )
 public final class NotesProvider {
 
@@ -76,7 +71,8 @@ public final class NotesProvider {
     @ContentUri(
         path = Path.LISTS,
         type = "vnd.android.cursor.dir/list",
-        defaultSort = ListColumns.TITLE + " ASC")
+        defaultSort = ListColumns.TITLE + " ASC",
+        cacheable = true)
     public static final Uri CONTENT_URI = buildUri(Path.LISTS);
 
     @InexactContentUri(
@@ -106,7 +102,8 @@ public final class NotesProvider {
 
     @ContentUri(
         path = Path.NOTES,
-        type = "vnd.android.cursor.dir/note")
+        type = "vnd.android.cursor.dir/note",
+        keyColumn = NoteColumns.ID)
     public static final Uri CONTENT_URI = buildUri(Path.NOTES);
 
     @InexactContentUri(
@@ -128,48 +125,6 @@ public final class NotesProvider {
     public static Uri fromList(long listId) {
       return buildUri(Path.NOTES, Path.FROM_LIST, String.valueOf(listId));
     }
-
-    @NotifyInsert(paths = Path.NOTES) public static Uri[] onInsert(ContentValues values) {
-      final long listId = values.getAsLong(NoteColumns.LIST_ID);
-      return new Uri[] {
-          Lists.withId(listId), fromList(listId),
-      };
-    }
-
-    @NotifyBulkInsert(paths = Path.NOTES)
-    public static Uri[] onBulkInsert(Context context, Uri uri, ContentValues[] values, long[] ids) {
-      return new Uri[] {
-          uri,
-      };
-    }
-
-    @NotifyUpdate(paths = Path.NOTES + "/#") public static Uri[] onUpdate(Context context,
-        Uri uri, String where, String[] whereArgs) {
-      final long noteId = Long.valueOf(uri.getPathSegments().get(1));
-      Cursor c = context.getContentResolver().query(uri, new String[] {
-          NoteColumns.LIST_ID,
-      }, null, null, null);
-      c.moveToFirst();
-      final long listId = c.getLong(c.getColumnIndex(NoteColumns.LIST_ID));
-      c.close();
-
-      return new Uri[] {
-          withId(noteId), fromList(listId), Lists.withId(listId),
-      };
-    }
-
-    @NotifyDelete(paths = Path.NOTES + "/#") public static Uri[] onDelete(Context context,
-        Uri uri) {
-      final long noteId = Long.valueOf(uri.getPathSegments().get(1));
-      Cursor c = context.getContentResolver().query(uri, null, null, null, null);
-      c.moveToFirst();
-      final long listId = c.getLong(c.getColumnIndex(NoteColumns.LIST_ID));
-      c.close();
-
-      return new Uri[] {
-          withId(noteId), fromList(listId), Lists.withId(listId),
-      };
-    }
   }
 
   @TableEndpoint(table = Tables.NOTES_TAGS)
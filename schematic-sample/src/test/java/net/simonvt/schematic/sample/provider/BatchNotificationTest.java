@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import net.simonvt.schematic.sample.database.NotesProvider.Lists;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatchNotificationTest {
+
+  private ContentResolver resolver;
+
+  @Before public void setUp() {
+    Providers.setUp();
+    resolver = RuntimeEnvironment.application.getContentResolver();
+  }
+
+  @After public void tearDown() {
+    Providers.tearDown();
+  }
+
+  private List<Uri> notified() {
+    List<Uri> uris = new ArrayList<>();
+    ShadowContentResolver shadowResolver = Shadow.extract(resolver);
+    for (ShadowContentResolver.NotifiedUri notified : shadowResolver.getNotifiedUris()) {
+      uris.add(notified.uri);
+    }
+    return uris;
+  }
+
+  private static ContentProviderOperation insertNote(String status) {
+    return ContentProviderOperation.newInsert(Notes.CONTENT_URI)
+        .withValue(NoteColumns.NOTE, "note")
+        .withValue(NoteColumns.STATUS, status)
+        .build();
+  }
+
+  @Test public void batchNotifiesOnceAfterCommit() throws Exception {
+    ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ops.add(insertNote(NoteColumns.STATUS_NEW));
+    }
+    resolver.applyBatch(NotesProvider.AUTHORITY, ops);
+
+    assertEquals(Arrays.asList(Lists.CONTENT_URI, Notes.CONTENT_URI), notified());
+  }
+
+  @Test public void failedBatchDoesNotNotify() throws Exception {
+    ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+    ops.add(insertNote(NoteColumns.STATUS_NEW));
+    ops.add(insertNote("invalid"));
+    try {
+      resolver.applyBatch(NotesProvider.AUTHORITY, ops);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+
+    assertTrue(notified().isEmpty());
+  }
+}
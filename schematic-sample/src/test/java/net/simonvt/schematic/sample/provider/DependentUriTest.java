@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.simonvt.schematic.sample.database.ListColumns;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import net.simonvt.schematic.sample.database.NotesProvider.Lists;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import net.simonvt.schematic.sample.database.NotesProvider.NotesTags;
+import net.simonvt.schematic.sample.database.TagColumns;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class DependentUriTest {
+
+  private ContentResolver resolver;
+
+  @Before public void setUp() {
+    Providers.setUp();
+    resolver = RuntimeEnvironment.application.getContentResolver();
+  }
+
+  @After public void tearDown() {
+    Providers.tearDown();
+  }
+
+  /** Returns the URIs notified since the last call. */
+  private List<Uri> notified() {
+    List<Uri> uris = new ArrayList<>();
+    ShadowContentResolver shadowResolver = Shadow.extract(resolver);
+    List<ShadowContentResolver.NotifiedUri> notifiedUris = shadowResolver.getNotifiedUris();
+    for (ShadowContentResolver.NotifiedUri notified : notifiedUris) {
+      uris.add(notified.uri);
+    }
+    notifiedUris.clear();
+    return uris;
+  }
+
+  private long insertList() {
+    ContentValues values = new ContentValues();
+    values.put(ListColumns.TITLE, "list");
+    return Long.parseLong(resolver.insert(Lists.CONTENT_URI, values).getLastPathSegment());
+  }
+
+  private long insertNote(long listId) {
+    ContentValues values = new ContentValues();
+    values.put(NoteColumns.LIST_ID, listId);
+    values.put(NoteColumns.NOTE, "note");
+    values.put(NoteColumns.STATUS, NoteColumns.STATUS_NEW);
+    return Long.parseLong(resolver.insert(Notes.CONTENT_URI, values).getLastPathSegment());
+  }
+
+  @Test public void listWriteNotifiesNotesReferencingLists() {
+    long listId = insertList();
+    assertEquals(Arrays.asList(Lists.CONTENT_URI, Notes.CONTENT_URI), notified());
+
+    ContentValues values = new ContentValues();
+    values.put(ListColumns.TITLE, "renamed");
+    resolver.update(Lists.withId(listId), values, null, null);
+    assertEquals(Arrays.asList(Lists.CONTENT_URI, Notes.CONTENT_URI), notified());
+  }
+
+  @Test public void noteWriteNotifiesListsCountingNotes() {
+    long listId = insertList();
+    notified();
+
+    long noteId = insertNote(listId);
+    // Lists read the notes table through the LIST_COUNT subquery of their mapped columns
+    assertEquals(Arrays.asList(Lists.CONTENT_URI, Notes.CONTENT_URI), notified());
+
+    resolver.delete(Notes.withId(noteId), null, null);
+    assertEquals(Arrays.asList(Lists.CONTENT_URI, Notes.CONTENT_URI), notified());
+  }
+
+  @Test public void tagWriteNotifiesPathBeforeWildcard() {
+    long noteId = insertNote(insertList());
+    notified();
+
+    ContentValues values = new ContentValues();
+    values.put(TagColumns.NOTE_ID, noteId);
+    values.put(TagColumns.NAME, "tag");
+    resolver.insert(NotesTags.fromNote(noteId), values);
+    // notes/#/tags is notified through notes, which reaches the URIs below it
+    assertEquals(Collections.singletonList(Notes.CONTENT_URI), notified());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import net.simonvt.schematic.Keys;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class KeysTest {
+
+  private ContentResolver resolver;
+
+  @Before public void setUp() {
+    Providers.setUp();
+    resolver = RuntimeEnvironment.application.getContentResolver();
+  }
+
+  @After public void tearDown() {
+    Providers.tearDown();
+  }
+
+  /** Inserts {@code count} notes, and returns their IDs. */
+  private long[] insertNotes(int count) {
+    ContentValues[] values = new ContentValues[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = new ContentValues();
+      values[i].put(NoteColumns.NOTE, "note " + i);
+      values[i].put(NoteColumns.STATUS, NoteColumns.STATUS_NEW);
+    }
+    resolver.bulkInsert(Notes.CONTENT_URI, values);
+
+    long[] ids = new long[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = i + 1;
+    }
+    return ids;
+  }
+
+  @Test public void keysRoundTrip() {
+    Uri uri = Keys.withKeys(Notes.CONTENT_URI, 3L, 1L, 2L);
+    assertArrayEquals(new long[] { 3L, 1L, 2L }, Keys.getKeys(uri));
+    assertEquals(null, Keys.getKeys(Notes.CONTENT_URI));
+  }
+
+  @Test public void queryIsRestrictedToKeys() {
+    insertNotes(5);
+
+    Cursor cursor = resolver.query(Keys.withKeys(Notes.CONTENT_URI, 4L, 2L),
+        new String[] { NoteColumns.ID }, null, null, NoteColumns.ID + " DESC");
+    try {
+      assertEquals(2, cursor.getCount());
+      cursor.moveToFirst();
+      assertEquals(4L, cursor.getLong(0));
+      cursor.moveToNext();
+      assertEquals(2L, cursor.getLong(0));
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void keysBeyondVariableLimit() {
+    long[] ids = insertNotes(1200);
+    Uri uri = Keys.withKeys(Notes.CONTENT_URI, ids);
+
+    Cursor cursor = resolver.query(uri, new String[] { NoteColumns.ID }, null, null, null);
+    try {
+      assertEquals(1200, cursor.getCount());
+    } finally {
+      cursor.close();
+    }
+
+    try {
+      resolver.query(uri, new String[] { NoteColumns.ID }, null, null, NoteColumns.ID);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+
+    assertEquals(1200, resolver.delete(uri, null, null));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.List;
+import net.simonvt.schematic.PagedQuery;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import net.simonvt.schematic.sample.provider.values.NotesRow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class PagingTest {
+
+  private ContentResolver resolver;
+
+  @Before public void setUp() {
+    Providers.setUp();
+    resolver = RuntimeEnvironment.application.getContentResolver();
+    for (int i = 1; i <= 5; i++) {
+      ContentValues values = new ContentValues();
+      values.put(NoteColumns.NOTE, "note " + i);
+      resolver.insert(Notes.CONTENT_URI, values);
+    }
+  }
+
+  @After public void tearDown() {
+    Providers.tearDown();
+  }
+
+  @Test public void pagesNotes() {
+    List<NotesRow> notes = new ArrayList<>();
+    PagedQuery query = NotesProvider.pageNotesContentUri(resolver, null, null, null, 2);
+    for (NotesRow note : query.rows(NotesRow.mapper())) {
+      notes.add(note);
+    }
+
+    assertEquals(5, notes.size());
+    for (int i = 0; i < notes.size(); i++) {
+      assertEquals("note " + (i + 1), notes.get(i).note);
+    }
+  }
+
+  @Test public void limitIsOnlyReadByPagedUris() {
+    assertEquals(2, count(withLimit(Notes.CONTENT_URI, 2)));
+    assertEquals(1, count(withLimit(Notes.withId(1), 0)));
+  }
+
+  private static Uri withLimit(Uri uri, int limit) {
+    return uri.buildUpon()
+        .appendQueryParameter(PagedQuery.QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+        .build();
+  }
+
+  private int count(Uri uri) {
+    Cursor cursor = resolver.query(uri, null, null, null, null);
+    try {
+      return cursor.getCount();
+    } finally {
+      cursor.close();
+    }
+  }
+}
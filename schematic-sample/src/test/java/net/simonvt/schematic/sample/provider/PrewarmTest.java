@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.database.sqlite.SQLiteDatabase;
+import java.lang.reflect.Method;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class PrewarmTest {
+
+  private NotesProvider provider;
+
+  @Before public void setUp() {
+    provider = Providers.setUp();
+  }
+
+  @After public void tearDown() {
+    Providers.tearDown();
+  }
+
+  @Test public void statementsPrepare() throws Exception {
+    Method prewarmStatements = NotesProvider.class.getDeclaredMethod("prewarmStatements");
+    prewarmStatements.setAccessible(true);
+    String[] statements = (String[]) prewarmStatements.invoke(provider);
+    // One for each content URI of the sample
+    assertEquals(6, statements.length);
+
+    SQLiteDatabase db =
+        NotesDatabase.getInstance(RuntimeEnvironment.application).getReadableDatabase();
+    for (String sql : statements) {
+      // Throws if the statement does not compile
+      db.compileStatement(sql).close();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import java.lang.reflect.Field;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+
+/** Sets up the sample's generated provider with a new database for each test. */
+final class Providers {
+
+  private Providers() {
+  }
+
+  static NotesProvider setUp() {
+    resetDatabase();
+    return Robolectric.setupContentProvider(NotesProvider.class, NotesProvider.AUTHORITY);
+  }
+
+  static void tearDown() {
+    NotesDatabase.getInstance(RuntimeEnvironment.application).close();
+    resetDatabase();
+  }
+
+  static void resetDatabase() {
+    try {
+      Field instance = NotesDatabase.class.getDeclaredField("instance");
+      instance.setAccessible(true);
+      instance.set(null, null);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
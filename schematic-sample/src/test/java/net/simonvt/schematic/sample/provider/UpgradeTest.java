@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class UpgradeTest {
+
+  private Context context;
+
+  @Before public void setUp() {
+    context = RuntimeEnvironment.application;
+    Providers.resetDatabase();
+  }
+
+  @After public void tearDown() {
+    NotesDatabase.getInstance(context).close();
+    Providers.resetDatabase();
+  }
+
+  @Test public void upgradeCreatesIndex() {
+    // Version 1 of the database, created before the index on listId was added
+    File file = context.getDatabasePath("notesDatabase.db");
+    file.getParentFile().mkdirs();
+    SQLiteDatabase v1 = SQLiteDatabase.openOrCreateDatabase(file, null);
+    v1.execSQL(NotesDatabase.LISTS);
+    v1.execSQL(NotesDatabase.NOTES_TAGS);
+    v1.execSQL(NotesDatabase.NOTES);
+    v1.setVersion(1);
+    v1.close();
+
+    SQLiteDatabase db = NotesDatabase.getInstance(context).getReadableDatabase();
+    assertEquals(net.simonvt.schematic.sample.database.NotesDatabase.VERSION, db.getVersion());
+    assertEquals(1L, DatabaseUtils.longForQuery(db,
+        "SELECT COUNT(*) FROM sqlite_master WHERE type='index' AND name='notes_listId'", null));
+  }
+
+  @Test public void createdDatabaseHasIndex() {
+    SQLiteDatabase db = NotesDatabase.getInstance(context).getReadableDatabase();
+    Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN SELECT * FROM notes WHERE listId=1", null);
+    try {
+      cursor.moveToFirst();
+      String detail = cursor.getString(cursor.getColumnIndexOrThrow("detail"));
+      assertTrue(detail, detail.contains("notes_listId"));
+    } finally {
+      cursor.close();
+    }
+  }
+}
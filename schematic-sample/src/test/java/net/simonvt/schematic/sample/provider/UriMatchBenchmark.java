@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.UriMatcher;
+import android.net.Uri;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import net.simonvt.schematic.sample.database.NotesProvider.Lists;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import net.simonvt.schematic.sample.database.NotesProvider.NotesTags;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times the generated matcher against a UriMatcher of the same paths. Skipped unless the
+ * {@code schematic.benchmark} system property is set, e.g. with {@code ./gradlew test -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class UriMatchBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 20000;
+  private static final int ITERATIONS = 200000;
+
+  private final Uri[] uris = {
+      Lists.CONTENT_URI, Lists.withId(1), Notes.CONTENT_URI, Notes.withId(2), Notes.fromList(3),
+      NotesTags.fromNote(4), Uri.parse("content://" + NotesProvider.AUTHORITY + "/notes/1/other"),
+      Uri.parse("content://other/lists"),
+  };
+
+  private MethodHandle uriMatcherMatch;
+  private MethodHandle generatedMatch;
+
+  @Before public void setUp() throws Exception {
+    assumeTrue(Boolean.getBoolean("schematic.benchmark"));
+    // Both are called through a method handle, as the generated match is private
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    uriMatcherMatch = lookup.findVirtual(UriMatcher.class, "match",
+        MethodType.methodType(int.class, Uri.class)).bindTo(UriMatchTest.sampleMatcher());
+    generatedMatch = lookup.unreflect(UriMatchTest.generatedMatch());
+  }
+
+  @Test public void matchSampleUris() throws Throwable {
+    run(uriMatcherMatch, WARMUP_ITERATIONS);
+    run(generatedMatch, WARMUP_ITERATIONS);
+
+    long start = System.nanoTime();
+    long uriMatcherSum = run(uriMatcherMatch, ITERATIONS);
+    long uriMatcherTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long generatedSum = run(generatedMatch, ITERATIONS);
+    long generatedTime = System.nanoTime() - start;
+
+    assertEquals(uriMatcherSum, generatedSum);
+    long matches = (long) ITERATIONS * uris.length;
+    System.out.printf("UriMatcher: %d ns/match, generated: %d ns/match%n",
+        uriMatcherTime / matches, generatedTime / matches);
+  }
+
+  /** Matches every URI {@code iterations} times, and returns the sum of the codes. */
+  private long run(MethodHandle match, int iterations) throws Throwable {
+    long sum = 0;
+    for (int i = 0; i < iterations; i++) {
+      for (Uri uri : uris) {
+        sum += (int) match.invokeExact(uri);
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.UriMatcher;
+import android.net.Uri;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import net.simonvt.schematic.sample.database.NotesProvider.Lists;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import net.simonvt.schematic.sample.database.NotesProvider.NotesTags;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/** Checks that the generated matcher resolves URIs to the same codes as a UriMatcher. */
+@RunWith(RobolectricTestRunner.class)
+public class UriMatchTest {
+
+  private static final String AUTHORITY = NotesProvider.AUTHORITY;
+
+  private UriMatcher uriMatcher;
+  private Method match;
+
+  @Before public void setUp() throws Exception {
+    uriMatcher = sampleMatcher();
+    match = generatedMatch();
+  }
+
+  /** A UriMatcher of the sample's paths, returning the generated provider's codes. */
+  static UriMatcher sampleMatcher() throws Exception {
+    UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+    uriMatcher.addURI(AUTHORITY, "lists", code("LISTS_CONTENT_URI"));
+    uriMatcher.addURI(AUTHORITY, "lists/#", code("LISTS_LIST_ID"));
+    uriMatcher.addURI(AUTHORITY, "notes", code("NOTES_CONTENT_URI"));
+    uriMatcher.addURI(AUTHORITY, "notes/#", code("NOTES_NOTE_ID"));
+    uriMatcher.addURI(AUTHORITY, "notes/fromList/#", code("NOTES_NOTES_FROM_LIST"));
+    uriMatcher.addURI(AUTHORITY, "notes/#/tags", code("NOTESTAGS_TAGS_FOR_NOTE"));
+    return uriMatcher;
+  }
+
+  /** The generated provider's static match(Uri) method. */
+  static Method generatedMatch() throws Exception {
+    Method match = NotesProvider.class.getDeclaredMethod("match", Uri.class);
+    match.setAccessible(true);
+    return match;
+  }
+
+  private static int code(String name) throws Exception {
+    Field field = NotesProvider.class.getDeclaredField(name);
+    field.setAccessible(true);
+    return field.getInt(null);
+  }
+
+  @Test public void sampleUrisMatch() throws Exception {
+    Uri[] uris = {
+        Lists.CONTENT_URI, Lists.withId(1), Lists.withId(1234567890123L),
+        Notes.CONTENT_URI, Notes.withId(2), Notes.fromList(3),
+        NotesTags.fromNote(4),
+    };
+    for (Uri uri : uris) {
+      int code = uriMatcher.match(uri);
+      assertNotEquals(uri.toString(), UriMatcher.NO_MATCH, code);
+      assertEquals(uri.toString(), code, match.invoke(null, uri));
+    }
+  }
+
+  @Test public void otherUrisDoNotMatch() throws Exception {
+    String[] paths = {
+        "", "/", "other", "lists/", "lists/abc", "lists/1/2", "notes/1a", "notes/fromList",
+        "notes/fromList/abc", "notes/fromList/1/2", "notes/abc/tags", "notes/1/other",
+        "notes/1/tags/2", "notes//tags",
+    };
+    for (String path : paths) {
+      Uri uri = Uri.parse("content://" + AUTHORITY + "/" + path);
+      assertEquals(uri.toString(), uriMatcher.match(uri), match.invoke(null, uri));
+    }
+
+    Uri otherAuthority = Uri.parse("content://other/lists");
+    assertEquals(UriMatcher.NO_MATCH, uriMatcher.match(otherAuthority));
+    assertEquals(UriMatcher.NO_MATCH, match.invoke(null, otherAuthority));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import net.simonvt.schematic.sample.database.ListColumns;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import net.simonvt.schematic.sample.database.NotesProvider.Lists;
+import net.simonvt.schematic.sample.database.NotesProvider.Notes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class WhereTest {
+
+  private ContentResolver resolver;
+
+  @Before public void setUp() {
+    Providers.setUp();
+    resolver = RuntimeEnvironment.application.getContentResolver();
+  }
+
+  @After public void tearDown() {
+    Providers.tearDown();
+  }
+
+  private long insertList(String title) {
+    ContentValues values = new ContentValues();
+    values.put(ListColumns.TITLE, title);
+    return Long.parseLong(resolver.insert(Lists.CONTENT_URI, values).getLastPathSegment());
+  }
+
+  private long insertNote(long listId, String note) {
+    ContentValues values = new ContentValues();
+    values.put(NoteColumns.LIST_ID, listId);
+    values.put(NoteColumns.NOTE, note);
+    return Long.parseLong(resolver.insert(Notes.CONTENT_URI, values).getLastPathSegment());
+  }
+
+  private int count(Uri uri, String selection, String... selectionArgs) {
+    Cursor cursor = resolver.query(uri, null, selection, selectionArgs, null);
+    try {
+      return cursor.getCount();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void pathSegmentsAreBoundToWhereColumns() {
+    long first = insertList("first");
+    long second = insertList("second");
+    insertNote(first, "a");
+    insertNote(first, "b");
+    long noteId = insertNote(second, "c");
+
+    assertEquals(2, count(Notes.fromList(first), null));
+    assertEquals(1, count(Notes.fromList(second), null));
+    // The selection is combined with the where clause of the URI
+    assertEquals(1, count(Notes.fromList(first), NoteColumns.NOTE + "=?", "b"));
+
+    ContentValues values = new ContentValues();
+    values.put(NoteColumns.NOTE, "updated");
+    assertEquals(1, resolver.update(Notes.withId(noteId), values, null, null));
+    assertEquals(1, count(Notes.CONTENT_URI, NoteColumns.NOTE + "=?", "updated"));
+
+    assertEquals(2, resolver.delete(Notes.fromList(first), null, null));
+    assertEquals(1, count(Notes.CONTENT_URI, null));
+  }
+}
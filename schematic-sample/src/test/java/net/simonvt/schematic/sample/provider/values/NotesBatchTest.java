@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider.values;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import net.simonvt.schematic.sample.provider.NotesDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotesBatchTest {
+
+  private SQLiteDatabase db;
+
+  @Before public void setUp() {
+    db = SQLiteDatabase.create(null);
+    db.execSQL(NotesDatabase.LISTS);
+    db.execSQL(NotesDatabase.NOTES);
+  }
+
+  @After public void tearDown() {
+    db.close();
+  }
+
+  @Test public void unsetValuesAreNull() {
+    NotesBatch batch = new NotesBatch();
+    batch.add().listId(2L).note("first");
+    batch.add().note("second").status(NoteColumns.STATUS_NEW);
+    assertArrayEquals(new long[] { 1L, 2L }, batch.insert(db));
+
+    Cursor cursor = db.rawQuery("SELECT * FROM notes ORDER BY _id", null);
+    try {
+      NotesReader reader = new NotesReader(cursor);
+      cursor.moveToFirst();
+      assertEquals(2L, reader.getListId());
+      assertEquals("first", reader.getNote());
+      assertTrue(reader.isStatusNull());
+
+      cursor.moveToNext();
+      assertTrue(reader.isListIdNull());
+      assertEquals("second", reader.getNote());
+      assertEquals(NoteColumns.STATUS_NEW, reader.getStatus());
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void growsPastCapacity() {
+    NotesBatch batch = new NotesBatch(1);
+    for (int i = 0; i < 100; i++) {
+      batch.add().note("note " + i);
+      if (i % 3 == 0) {
+        batch.listId(i);
+      }
+    }
+    assertEquals(100, batch.size());
+    assertEquals(100, batch.insert(db).length);
+
+    Cursor cursor = db.rawQuery("SELECT note, listId FROM notes ORDER BY _id", null);
+    try {
+      NotesReader reader = new NotesReader(cursor);
+      for (int i = 0; cursor.moveToNext(); i++) {
+        assertEquals("note " + i, reader.getNote());
+        if (i % 3 == 0) {
+          assertEquals(i, reader.getListId());
+        } else {
+          assertTrue(reader.isListIdNull());
+        }
+      }
+      assertEquals(100, cursor.getPosition());
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void clearedBatchIsReused() {
+    NotesBatch batch = new NotesBatch();
+    batch.add().listId(1L).note("first");
+    batch.clear();
+    batch.add().note("second");
+    batch.insert(db);
+
+    Cursor cursor = db.rawQuery("SELECT note FROM notes WHERE listId IS NULL", null);
+    try {
+      assertEquals(1, cursor.getCount());
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void valueBeforeAddThrows() {
+    try {
+      new NotesBatch().note("note");
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
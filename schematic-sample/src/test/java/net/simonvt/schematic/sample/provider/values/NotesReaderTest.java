@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider.values;
+
+import android.database.MatrixCursor;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotesReaderTest {
+
+  @Test public void readsColumnsInAnyOrder() {
+    MatrixCursor cursor = new MatrixCursor(new String[] {
+        NoteColumns.NOTE, NoteColumns.LIST_ID, NoteColumns.ID
+    });
+    cursor.addRow(new Object[] { "first", 2L, 1L });
+    cursor.addRow(new Object[] { "second", null, 3L });
+
+    NotesReader reader = new NotesReader(cursor);
+    cursor.moveToFirst();
+    assertEquals(1L, reader.getId());
+    assertEquals(2L, reader.getListId());
+    assertEquals("first", reader.getNote());
+
+    cursor.moveToNext();
+    assertEquals(3L, reader.getId());
+    assertTrue(reader.isListIdNull());
+    assertFalse(reader.isNoteNull());
+  }
+
+  @Test public void missingColumnThrows() {
+    MatrixCursor cursor = new MatrixCursor(new String[] { NoteColumns.ID });
+    cursor.addRow(new Object[] { 1L });
+    cursor.moveToFirst();
+
+    NotesReader reader = new NotesReader(cursor);
+    try {
+      reader.getStatus();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.sample.provider.values;
+
+import android.database.MatrixCursor;
+import net.simonvt.schematic.sample.database.NoteColumns;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotesRowTest {
+
+  @Test public void fromCursor() {
+    MatrixCursor cursor = new MatrixCursor(new String[] {
+        NoteColumns.ID, NoteColumns.LIST_ID, NoteColumns.NOTE, NoteColumns.STATUS
+    });
+    cursor.addRow(new Object[] { 1L, 2L, "first", NoteColumns.STATUS_NEW });
+    cursor.addRow(new Object[] { 3L, null, "second", null });
+
+    NotesReader reader = new NotesReader(cursor);
+    cursor.moveToFirst();
+    NotesRow first = NotesRow.fromCursor(reader);
+    assertEquals(new NotesRow(1L, 2L, "first", NoteColumns.STATUS_NEW), first);
+    assertEquals(first.hashCode(), NotesRow.fromCursor(cursor).hashCode());
+
+    cursor.moveToNext();
+    NotesRow second = NotesRow.fromCursor(reader);
+    assertEquals(3L, second.id);
+    assertNull(second.listId);
+    assertNull(second.status);
+    assertNotEquals(first, second);
+  }
+}
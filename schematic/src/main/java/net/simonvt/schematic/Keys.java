@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic;
+
+import android.net.Uri;
+import android.text.TextUtils;
+import javax.annotation.Nullable;
+
+/**
+ * Passes a set of keys to a content URI with a {@code keyColumn}. The generated ContentProvider
+ * restricts queries, updates and deletes on the URI to the rows whose key column is one of the
+ * keys, in as few statements as SQLite's limit on bound variables allows.
+ * <pre>{@code
+ * Uri uri = Keys.withKeys(NotesProvider.Notes.CONTENT_URI, noteIds);
+ * int deleted = resolver.delete(uri, null, null);
+ * }</pre>
+ */
+public final class Keys {
+
+  /** Query parameter holding the keys, separated by commas. */
+  public static final String QUERY_PARAMETER_KEYS = "keys";
+
+  private Keys() {
+  }
+
+  /** Returns {@code uri} with {@code keys} appended. */
+  public static Uri withKeys(Uri uri, long... keys) {
+    StringBuilder value = new StringBuilder(keys.length * 8);
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) {
+        value.append(',');
+      }
+      value.append(keys[i]);
+    }
+
+    return uri.buildUpon().appendQueryParameter(QUERY_PARAMETER_KEYS, value.toString()).build();
+  }
+
+  /**
+   * Returns the keys appended to {@code uri}, or null if it has none.
+   *
+   * @throws IllegalArgumentException if a key is not a number.
+   */
+  public static @Nullable long[] getKeys(Uri uri) {
+    String value = uri.getQueryParameter(QUERY_PARAMETER_KEYS);
+    if (value == null) {
+      return null;
+    }
+    if (value.isEmpty()) {
+      return new long[0];
+    }
+
+    String[] values = TextUtils.split(value, ",");
+    long[] keys = new long[values.length];
+    try {
+      for (int i = 0; i < values.length; i++) {
+        keys[i] = Long.parseLong(values[i]);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid keys in " + uri, e);
+    }
+
+    return keys;
+  }
+}
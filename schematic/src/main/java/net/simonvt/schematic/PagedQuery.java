@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.text.TextUtils;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+
+/**
+ * Pages through the result of a query using keyset pagination. Rows are ordered by an integer key
+ * column, and each page is queried with {@code key > lastKey} and a limit of {@code pageSize}
+ * rows, so no single cursor holds more than one page. Each page selects the key column in
+ * addition to the requested projection.
+ * <p>
+ * Iterating returns one cursor per page. A page is closed when the next page is requested, or when
+ * the last page has been reached. If iteration is stopped early, the current page must be closed
+ * by the caller.
+ * <pre>{@code
+ * for (Cursor page : NotesProvider.pageNotesContentUri(resolver, null, null, null, 500)) {
+ *   while (page.moveToNext()) {
+ *     ...
+ *   }
+ * }
+ * }</pre>
+ */
+public class PagedQuery implements Iterable<Cursor> {
+
+  /**
+   * Query parameter used to pass the page size to a generated ContentProvider. It is only read by
+   * content URIs that can be paged.
+   */
+  public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+  // The key is selected under its own name, as a join may select several columns named e.g. _id
+  private static final String KEY_ALIAS = "__page_key";
+
+  /** Maps the rows of each page to objects. */
+  public abstract static class RowMapper<T> {
+
+    /** Called once for each page, before any of its rows are mapped. */
+    protected void onPage(Cursor cursor) {
+    }
+
+    /** Map the row at the current position of the cursor. */
+    protected abstract T map(Cursor cursor);
+  }
+
+  private final ContentResolver resolver;
+  private final Uri uri;
+  private final String[] projection;
+  private final String selection;
+  private final String[] selectionArgs;
+  private final String keyColumn;
+  private final int pageSize;
+
+  /**
+   * Create a query for {@code uri}, returning pages of up to {@code pageSize} rows.
+   *
+   * @param keyColumn The integer column rows are ordered by. If the query joins other tables, the
+   * column should be qualified with its table name.
+   */
+  public PagedQuery(ContentResolver resolver, Uri uri, @Nullable String[] projection,
+      @Nullable String selection, @Nullable String[] selectionArgs, String keyColumn,
+      int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive");
+    }
+
+    this.resolver = resolver;
+    this.uri = uri.buildUpon()
+        .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(pageSize))
+        .build();
+    this.selection = selection;
+    this.selectionArgs = selectionArgs;
+    this.keyColumn = keyColumn;
+    this.pageSize = pageSize;
+    this.projection = withKey(projection);
+  }
+
+  private String[] withKey(@Nullable String[] projection) {
+    String key = keyColumn + " AS " + KEY_ALIAS;
+    if (projection == null) {
+      return new String[] { "*", key };
+    }
+
+    String[] withKey = new String[projection.length + 1];
+    System.arraycopy(projection, 0, withKey, 0, projection.length);
+    withKey[projection.length] = key;
+    return withKey;
+  }
+
+  private Cursor queryPage(@Nullable String lastKey) {
+    String pageSelection = selection;
+    String[] pageSelectionArgs = selectionArgs;
+
+    if (lastKey != null) {
+      if (TextUtils.isEmpty(selection)) {
+        pageSelection = keyColumn + ">?";
+      } else {
+        pageSelection = "(" + selection + ") AND " + keyColumn + ">?";
+      }
+
+      int argCount = selectionArgs != null ? selectionArgs.length : 0;
+      pageSelectionArgs = new String[argCount + 1];
+      if (argCount > 0) {
+        System.arraycopy(selectionArgs, 0, pageSelectionArgs, 0, argCount);
+      }
+      pageSelectionArgs[argCount] = lastKey;
+    }
+
+    return resolver.query(uri, projection, pageSelection, pageSelectionArgs, keyColumn + " ASC");
+  }
+
+  @Override public Iterator<Cursor> iterator() {
+    return new PageIterator();
+  }
+
+  /** Iterate over the rows of every page, mapping each row with {@code mapper}. */
+  public <T> Iterable<T> rows(final RowMapper<T> mapper) {
+    return new Iterable<T>() {
+      @Override public Iterator<T> iterator() {
+        return new RowIterator<>(new PageIterator(), mapper);
+      }
+    };
+  }
+
+  private class PageIterator implements Iterator<Cursor> {
+
+    private Cursor page;
+    private Cursor next;
+    private String lastKey;
+    private boolean done;
+
+    @Override public boolean hasNext() {
+      if (next == null && !done) {
+        closePage();
+
+        Cursor cursor = queryPage(lastKey);
+        if (cursor == null || cursor.getCount() == 0) {
+          if (cursor != null) {
+            cursor.close();
+          }
+          done = true;
+        } else {
+          done = cursor.getCount() < pageSize;
+          cursor.moveToLast();
+          lastKey = cursor.getString(cursor.getColumnIndexOrThrow(KEY_ALIAS));
+          cursor.moveToPosition(-1);
+          next = cursor;
+        }
+      }
+
+      if (next == null) {
+        closePage();
+        return false;
+      }
+
+      return true;
+    }
+
+    @Override public Cursor next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      page = next;
+      next = null;
+      return page;
+    }
+
+    private void closePage() {
+      if (page != null) {
+        page.close();
+        page = null;
+      }
+    }
+
+    @Override public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static class RowIterator<T> implements Iterator<T> {
+
+    private final Iterator<Cursor> pages;
+    private final RowMapper<T> mapper;
+    private Cursor page;
+
+    RowIterator(Iterator<Cursor> pages, RowMapper<T> mapper) {
+      this.pages = pages;
+      this.mapper = mapper;
+    }
+
+    @Override public boolean hasNext() {
+      while (page == null || page.getPosition() >= page.getCount() - 1) {
+        if (!pages.hasNext()) {
+          page = null;
+          return false;
+        }
+
+        page = pages.next();
+        mapper.onPage(page);
+      }
+
+      return true;
+    }
+
+    @Override public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      page.moveToNext();
+      return mapper.map(page);
+    }
+
+    @Override public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Inserts rows into a single table through compiled {@link SQLiteStatement}s. A statement is
+ * compiled once for each distinct set of columns, and reused for every following row with the
+ * same set of columns. This class is <em>not</em> thread safe.
+ * <p>
+ * Rows conflicting with an existing row can be resolved with a conflict algorithm, e.g.
+ * {@code REPLACE} or {@code IGNORE}, or upserted: with upsert columns, a row conflicting on those
+ * columns updates the existing row with its other values. Upserts require SQLite 3.24, which
+ * ships with Android 11.
+ */
+public class BulkInserter implements Closeable {
+
+  private static final class Statement {
+
+    final Set<String> columnSet;
+    final String[] columns;
+    final SQLiteStatement statement;
+    // Finds the row ID of an upserted row, as it is not returned when the row is updated
+    final SQLiteStatement rowIdStatement;
+    final int[] rowIdColumns;
+
+    Statement(Set<String> columnSet, String[] columns, SQLiteStatement statement,
+        SQLiteStatement rowIdStatement, int[] rowIdColumns) {
+      this.columnSet = columnSet;
+      this.columns = columns;
+      this.statement = statement;
+      this.rowIdStatement = rowIdStatement;
+      this.rowIdColumns = rowIdColumns;
+    }
+  }
+
+  private final SQLiteDatabase db;
+  private final String table;
+  private final String conflictAlgorithm;
+  private final String[] upsertColumns;
+
+  private final Map<Set<String>, Statement> statements = new HashMap<>();
+  private Statement last;
+
+  public BulkInserter(SQLiteDatabase db, String table) {
+    this(db, table, null, null);
+  }
+
+  /**
+   * @param conflictAlgorithm The algorithm used when a row conflicts with an existing row, e.g.
+   * {@code REPLACE}. If null, the insert fails.
+   * @param upsertColumns If not null, rows conflicting on these columns update the existing row
+   * instead of being inserted.
+   */
+  public BulkInserter(SQLiteDatabase db, String table, @Nullable String conflictAlgorithm,
+      @Nullable String[] upsertColumns) {
+    this.db = db;
+    this.table = table;
+    this.conflictAlgorithm = conflictAlgorithm;
+    this.upsertColumns = upsertColumns;
+  }
+
+  /**
+   * Insert a row into the table.
+   *
+   * @return the row ID of the newly inserted or upserted row, or -1 if the row was not inserted.
+   * @throws android.database.SQLException if the insert fails.
+   */
+  public long insert(ContentValues values) {
+    Set<String> columnSet = values.keySet();
+    Statement statement = last;
+    if (statement == null || !statement.columnSet.equals(columnSet)) {
+      statement = statements.get(columnSet);
+      if (statement == null) {
+        statement = compile(columnSet);
+        statements.put(statement.columnSet, statement);
+      }
+      last = statement;
+    }
+
+    SQLiteStatement sqLiteStatement = statement.statement;
+    String[] columns = statement.columns;
+    sqLiteStatement.clearBindings();
+    for (int i = 0; i < columns.length; i++) {
+      DatabaseUtils.bindObjectToProgram(sqLiteStatement, i + 1, values.get(columns[i]));
+    }
+
+    long rowId = sqLiteStatement.executeInsert();
+    if (statement.rowIdStatement != null) {
+      rowId = findUpsertedRow(statement, values, rowId);
+    }
+
+    return rowId;
+  }
+
+  private static long findUpsertedRow(Statement statement, ContentValues values, long rowId) {
+    SQLiteStatement rowIdStatement = statement.rowIdStatement;
+    int[] rowIdColumns = statement.rowIdColumns;
+    rowIdStatement.clearBindings();
+    for (int i = 0; i < rowIdColumns.length; i++) {
+      Object value = values.get(statement.columns[rowIdColumns[i]]);
+      if (value == null) {
+        // NULLs never conflict, so the row was inserted
+        return rowId;
+      }
+      DatabaseUtils.bindObjectToProgram(rowIdStatement, i + 1, value);
+    }
+
+    return rowIdStatement.simpleQueryForLong();
+  }
+
+  private Statement compile(Set<String> columnSet) {
+    String[] columns = columnSet.toArray(new String[columnSet.size()]);
+
+    StringBuilder sql = new StringBuilder(128);
+    sql.append("INSERT ");
+    if (conflictAlgorithm != null) {
+      sql.append("OR ").append(conflictAlgorithm).append(' ');
+    }
+    sql.append("INTO ").append(table);
+    if (columns.length == 0) {
+      // An empty row can not list its columns, and can not be upserted
+      sql.append(" DEFAULT VALUES");
+      return new Statement(new HashSet<>(columnSet), columns, db.compileStatement(sql.toString()),
+          null, null);
+    }
+
+    sql.append(" (");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(',');
+      }
+      sql.append(columns[i]);
+    }
+    sql.append(") VALUES (");
+    for (int i = 0; i < columns.length; i++) {
+      sql.append(i > 0 ? ",?" : "?");
+    }
+    sql.append(')');
+
+    SQLiteStatement rowIdStatement = null;
+    int[] rowIdColumns = null;
+    if (upsertColumns != null) {
+      Set<String> conflictColumns = new HashSet<>(Arrays.asList(upsertColumns));
+      appendUpsert(sql, columns, conflictColumns);
+
+      // The row can only be found if every conflict column has a value
+      if (columnSet.containsAll(conflictColumns)) {
+        List<String> columnList = Arrays.asList(columns);
+        rowIdColumns = new int[upsertColumns.length];
+        StringBuilder rowIdSql = new StringBuilder(64);
+        rowIdSql.append("SELECT rowid FROM ").append(table).append(" WHERE ");
+        for (int i = 0; i < upsertColumns.length; i++) {
+          if (i > 0) {
+            rowIdSql.append(" AND ");
+          }
+          rowIdSql.append(upsertColumns[i]).append("=?");
+          rowIdColumns[i] = columnList.indexOf(upsertColumns[i]);
+        }
+        rowIdStatement = db.compileStatement(rowIdSql.toString());
+      }
+    }
+
+    return new Statement(new HashSet<>(columnSet), columns, db.compileStatement(sql.toString()),
+        rowIdStatement, rowIdColumns);
+  }
+
+  private void appendUpsert(StringBuilder sql, String[] columns, Set<String> conflictColumns) {
+    sql.append(" ON CONFLICT (");
+    for (int i = 0; i < upsertColumns.length; i++) {
+      if (i > 0) {
+        sql.append(',');
+      }
+      sql.append(upsertColumns[i]);
+    }
+    sql.append(") DO ");
+
+    boolean first = true;
+    for (String column : columns) {
+      if (!conflictColumns.contains(column)) {
+        sql.append(first ? "UPDATE SET " : ",");
+        sql.append(column).append("=excluded.").append(column);
+        first = false;
+      }
+    }
+    if (first) {
+      sql.append("NOTHING");
+    }
+  }
+
+  /** Release all compiled statements. */
+  @Override public void close() {
+    for (Statement statement : statements.values()) {
+      statement.statement.close();
+      if (statement.rowIdStatement != null) {
+        statement.rowIdStatement.close();
+      }
+    }
+    statements.clear();
+    last = null;
+  }
+}
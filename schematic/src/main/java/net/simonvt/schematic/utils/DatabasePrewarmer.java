@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Opens a database on a background thread, running any migrations, and prepares statements so
+ * they are in the connection's statement cache before they are first used.
+ * <p>
+ * Callers wait for the database with {@link #await()} instead of racing to open it. If opening the
+ * database fails, the error is logged, and thrown again when the caller opens the database.
+ * <p>
+ * Callbacks run while the database is opened, e.g. {@code onCreate} and {@code onUpgrade}, run on
+ * the prewarm thread. They must use the database they are passed. Calling back into the
+ * ContentProvider does not wait for the database to be opened, and fails as SQLiteOpenHelper does
+ * not allow opening a database recursively.
+ */
+public class DatabasePrewarmer implements Runnable {
+
+  private static final String TAG = "DatabasePrewarmer";
+
+  private final SQLiteOpenHelper helper;
+  private final Callable<String[]> statements;
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+
+  private volatile Thread prewarmThread;
+
+  public DatabasePrewarmer(SQLiteOpenHelper helper, final String[] statements) {
+    this(helper, new Callable<String[]>() {
+      @Override public String[] call() {
+        return statements;
+      }
+    });
+  }
+
+  /**
+   * Create a prewarmer building its statements on the prewarm thread, once the database has been
+   * opened. If building them fails, the error is logged and no statements are prepared.
+   */
+  public DatabasePrewarmer(SQLiteOpenHelper helper, Callable<String[]> statements) {
+    this.helper = helper;
+    this.statements = statements;
+  }
+
+  /** Start opening the database on a new background thread. */
+  public void start() {
+    // Not run on a shared executor, where it could be queued behind tasks waiting for it
+    Thread thread = new Thread(this, TAG);
+    thread.setPriority(Thread.NORM_PRIORITY);
+    thread.start();
+  }
+
+  @Override public void run() {
+    prewarmThread = Thread.currentThread();
+    try {
+      SQLiteDatabase db = helper.getWritableDatabase();
+      String[] sqls;
+      try {
+        sqls = statements.call();
+      } catch (Exception e) {
+        Log.w(TAG, "Unable to build the statements to prepare", e);
+        sqls = new String[0];
+      }
+
+      for (String sql : sqls) {
+        try {
+          SQLiteStatement statement = db.compileStatement(sql);
+          statement.close();
+        } catch (RuntimeException e) {
+          Log.w(TAG, "Unable to prepare " + sql, e);
+        }
+      }
+    } catch (RuntimeException e) {
+      Log.w(TAG, "Unable to open database", e);
+    } finally {
+      prewarmThread = null;
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Wait for the database to be opened. Returns immediately once it has been opened, or when
+   * called on the prewarm thread itself, where waiting would never end.
+   */
+  public void await() {
+    if (latch.getCount() == 0 || Thread.currentThread() == prewarmThread) {
+      return;
+    }
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Buffers change notifications sent by a ContentProvider.
+ * <p>
+ * Between {@link #beginBatch()} and {@link #endBatch(boolean)}, notifications sent on the calling
+ * thread are collected. Each distinct Uri is notified once when the outermost batch ends, or
+ * dropped if any of the nested batches were unsuccessful.
+ * <p>
+ * If created with a debounce delay, notifications are held back for that long after the first one,
+ * and each distinct Uri sent in that window is notified once.
+ */
+public class NotificationBuffer {
+
+  private static final class Batch {
+
+    int depth;
+
+    boolean successful = true;
+
+    final Set<Uri> uris = new LinkedHashSet<>();
+  }
+
+  private final ContentResolver resolver;
+  private final long debounceMillis;
+
+  private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+  private final Object lock = new Object();
+  private final Set<Uri> pending = new LinkedHashSet<>();
+  private Handler handler;
+
+  private final Runnable flushPending = new Runnable() {
+    @Override public void run() {
+      Uri[] uris;
+      synchronized (lock) {
+        uris = pending.toArray(new Uri[pending.size()]);
+        pending.clear();
+      }
+
+      for (Uri uri : uris) {
+        resolver.notifyChange(uri, null);
+      }
+    }
+  };
+
+  public NotificationBuffer(ContentResolver resolver, long debounceMillis) {
+    this.resolver = resolver;
+    this.debounceMillis = debounceMillis;
+  }
+
+  /** Notify observers of {@code uri}, or buffer the notification. */
+  public void notifyChange(Uri uri) {
+    Batch batch = batches.get();
+    if (batch != null) {
+      batch.uris.add(uri);
+    } else {
+      send(uri);
+    }
+  }
+
+  /** Start buffering notifications sent on the calling thread. Batches can be nested. */
+  public void beginBatch() {
+    Batch batch = batches.get();
+    if (batch == null) {
+      batch = new Batch();
+      batches.set(batch);
+    }
+
+    batch.depth++;
+  }
+
+  /**
+   * End a batch started with {@link #beginBatch()}. When the outermost batch ends, each distinct
+   * Uri notified during the batch is notified once. If this or any nested batch was not
+   * successful, e.g. because its transaction was rolled back, the notifications are dropped.
+   * A batch is only successful once {@code endTransaction()} returned, as committing can fail.
+   */
+  public void endBatch(boolean successful) {
+    Batch batch = batches.get();
+    if (batch == null) {
+      throw new IllegalStateException("endBatch called without a matching beginBatch");
+    }
+
+    batch.successful &= successful;
+
+    if (--batch.depth == 0) {
+      batches.remove();
+      if (batch.successful) {
+        for (Uri uri : batch.uris) {
+          send(uri);
+        }
+      }
+    }
+  }
+
+  /**
+   * Send the notifications collected so far in the current batch. Used when the work done so far
+   * has been committed, e.g. after the batch's transaction yielded.
+   */
+  public void flushBatch() {
+    Batch batch = batches.get();
+    if (batch == null) {
+      throw new IllegalStateException("flushBatch called outside of a batch");
+    }
+
+    if (batch.successful) {
+      for (Uri uri : batch.uris) {
+        send(uri);
+      }
+    }
+    batch.uris.clear();
+  }
+
+  private void send(Uri uri) {
+    if (debounceMillis <= 0) {
+      resolver.notifyChange(uri, null);
+      return;
+    }
+
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        handler().postDelayed(flushPending, debounceMillis);
+      }
+      pending.add(uri);
+    }
+  }
+
+  private Handler handler() {
+    if (handler == null) {
+      HandlerThread thread = new HandlerThread("NotificationBuffer");
+      thread.start();
+      handler = new Handler(thread.getLooper());
+    }
+
+    return handler;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Installs a database built at compile time, shipped as an asset. The database is copied into
+ * place before it is first opened, so the SQLiteOpenHelper finds an existing database at the
+ * current version, and does not create the schema one statement at a time.
+ */
+public final class PrebuiltDatabase {
+
+  private static final String TAG = "PrebuiltDatabase";
+
+  private PrebuiltDatabase() {
+  }
+
+  /**
+   * Copy the asset {@code asset} to the database {@code name}, unless the database already exists.
+   *
+   * @return false if the asset was not found, or could not be copied. The database is then created
+   * by the SQLiteOpenHelper as usual.
+   */
+  public static boolean install(Context context, String asset, String name) {
+    File database = context.getDatabasePath(name);
+    if (database.exists()) {
+      return false;
+    }
+
+    InputStream in;
+    try {
+      in = context.getAssets().open(asset);
+    } catch (FileNotFoundException e) {
+      return false;
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to open " + asset, e);
+      return false;
+    }
+
+    File directory = database.getParentFile();
+    if (!directory.exists() && !directory.mkdirs()) {
+      Log.w(TAG, "Unable to create " + directory);
+      close(in);
+      return false;
+    }
+
+    // Copied to a temporary file first, so a partial copy is never opened as the database
+    File temp = new File(directory, name + ".prebuilt");
+    OutputStream out = null;
+    try {
+      out = new FileOutputStream(temp);
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      out.close();
+      out = null;
+
+      if (!temp.renameTo(database)) {
+        throw new IOException("Unable to rename " + temp + " to " + database);
+      }
+      return true;
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to install " + asset, e);
+      temp.delete();
+      return false;
+    } finally {
+      close(in);
+      if (out != null) {
+        close(out);
+      }
+    }
+  }
+
+  private static void close(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException ignored) {
+    }
+  }
+}
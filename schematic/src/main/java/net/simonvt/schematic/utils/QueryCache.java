@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.net.Uri;
+import android.util.LruCache;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Caches query results in a ContentProvider.
+ * <p>
+ * Each entry keeps the {@link CursorWindow} the rows were read into, taken over from the cursor
+ * that ran the query, and the versions of the tables the query read. Writing to a table bumps its
+ * version, which invalidates every entry that read the table. Only results that fit in a single
+ * window are cached.
+ * <p>
+ * Writes that do not go through the ContentProvider are not seen by the cache. Queries with a
+ * subquery in their projection, selection or sort order may read any table, and are not cached.
+ */
+public class QueryCache {
+
+  private static final Pattern SUBQUERY =
+      Pattern.compile("\\bselect\\b", Pattern.CASE_INSENSITIVE);
+
+  /** Identifies a query. */
+  public static final class Key {
+
+    private final String uri;
+    private final String[] projection;
+    private final String selection;
+    private final String[] selectionArgs;
+    private final String sortOrder;
+    private final boolean subquery;
+
+    public Key(Uri uri, String[] projection, String selection, String[] selectionArgs,
+        String sortOrder) {
+      this.uri = uri.toString();
+      this.projection = projection;
+      this.selection = selection;
+      this.selectionArgs = selectionArgs;
+      this.sortOrder = sortOrder;
+      this.subquery = hasSubquery(projection, selection, sortOrder);
+    }
+
+    private static boolean hasSubquery(String[] projection, String selection, String sortOrder) {
+      if (projection != null) {
+        for (String column : projection) {
+          if (column != null && SUBQUERY.matcher(column).find()) {
+            return true;
+          }
+        }
+      }
+
+      return (selection != null && SUBQUERY.matcher(selection).find())
+          || (sortOrder != null && SUBQUERY.matcher(sortOrder).find());
+    }
+
+    @Override public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key key = (Key) o;
+      return uri.equals(key.uri)
+          && Arrays.equals(projection, key.projection)
+          && (selection == null ? key.selection == null : selection.equals(key.selection))
+          && Arrays.equals(selectionArgs, key.selectionArgs)
+          && (sortOrder == null ? key.sortOrder == null : sortOrder.equals(key.sortOrder));
+    }
+
+    @Override public int hashCode() {
+      int result = uri.hashCode();
+      result = 31 * result + Arrays.hashCode(projection);
+      result = 31 * result + (selection != null ? selection.hashCode() : 0);
+      result = 31 * result + Arrays.hashCode(selectionArgs);
+      result = 31 * result + (sortOrder != null ? sortOrder.hashCode() : 0);
+      return result;
+    }
+  }
+
+  private static final class Entry {
+
+    final String[] columns;
+    final CursorWindow window;
+    final String[] tables;
+    final long[] versions;
+
+    Entry(String[] columns, CursorWindow window, String[] tables, long[] versions) {
+      this.columns = columns;
+      this.window = window;
+      this.tables = tables;
+      this.versions = versions;
+    }
+  }
+
+  // Guards the windows of the entries, entryRemoved releases them while the lock is held
+  private final LruCache<Key, Entry> entries;
+
+  private final Map<String, Long> versions = new HashMap<>();
+
+  private static final class Batch {
+
+    int depth;
+
+    final Set<String> tables = new HashSet<>();
+  }
+
+  private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+  /** Create a cache holding up to {@code maxEntries} query results. */
+  public QueryCache(int maxEntries) {
+    entries = new LruCache<Key, Entry>(maxEntries) {
+      @Override
+      protected void entryRemoved(boolean evicted, Key key, Entry oldValue, Entry newValue) {
+        oldValue.window.releaseReference();
+      }
+    };
+  }
+
+  /**
+   * Returns a cursor over the cached result of a query, or null if the result is not cached or a
+   * table it read has since been written to.
+   */
+  public Cursor get(Key key) {
+    if (key.subquery) {
+      return null;
+    }
+
+    // Evicting or replacing an entry releases its window, so the cursor takes its reference to
+    // the window while the entry can not be removed
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+
+      if (!Arrays.equals(entry.versions, getVersions(entry.tables))) {
+        entries.remove(key);
+        return null;
+      }
+
+      return new CachedCursor(entry.columns, entry.window);
+    }
+  }
+
+  /** Returns the current versions of {@code tables}. Read these before running the query. */
+  public long[] getVersions(String[] tables) {
+    long[] tableVersions = new long[tables.length];
+    synchronized (versions) {
+      for (int i = 0; i < tables.length; i++) {
+        Long version = versions.get(tables[i]);
+        tableVersions[i] = version != null ? version : 0L;
+      }
+    }
+
+    return tableVersions;
+  }
+
+  /**
+   * Caches the result of a query, if it was read into a single window. The cache takes over the
+   * cursor's window and closes the cursor, so use the returned cursor in its place.
+   *
+   * @param tables The tables the query read.
+   * @param tableVersions The versions of the tables from before the query was run.
+   * @return A cursor over the cached window, or {@code cursor} if the result was not cached.
+   */
+  public Cursor put(Key key, String[] tables, long[] tableVersions, Cursor cursor) {
+    if (key.subquery || !(cursor instanceof AbstractWindowedCursor)) {
+      return cursor;
+    }
+
+    // Fills the window, SQLiteCursor only starts a new window when the rows don't fit
+    final int count = cursor.getCount();
+    AbstractWindowedCursor windowedCursor = (AbstractWindowedCursor) cursor;
+    CursorWindow window = windowedCursor.getWindow();
+    if (window == null || window.getStartPosition() != 0 || window.getNumRows() != count) {
+      return cursor;
+    }
+
+    // Closing the cursor releases its reference, the window is kept alive by the cache
+    String[] columns = cursor.getColumnNames();
+    window.acquireReference();
+    cursor.close();
+
+    // Takes its own reference first, as the entry may be evicted as soon as it is added
+    Cursor cachedCursor = new CachedCursor(columns, window);
+    synchronized (entries) {
+      entries.put(key, new Entry(columns, window, tables, tableVersions));
+    }
+    return cachedCursor;
+  }
+
+  /** Invalidate the cached results that read {@code table}. Call after writing to the table. */
+  public void onWrite(String table) {
+    bump(table);
+
+    Batch batch = batches.get();
+    if (batch != null) {
+      batch.tables.add(table);
+    }
+  }
+
+  /**
+   * Start a batch of writes on the calling thread, usually a transaction. The tables written to
+   * during the batch are invalidated again when it ends, so results read before the transaction
+   * committed are not kept.
+   */
+  public void beginBatch() {
+    Batch batch = batches.get();
+    if (batch == null) {
+      batch = new Batch();
+      batches.set(batch);
+    }
+
+    batch.depth++;
+  }
+
+  /** End a batch started with {@link #beginBatch()}, after its transaction has ended. */
+  public void endBatch() {
+    Batch batch = batches.get();
+    if (batch == null) {
+      throw new IllegalStateException("endBatch called without a matching beginBatch");
+    }
+
+    if (--batch.depth == 0) {
+      batches.remove();
+      for (String table : batch.tables) {
+        bump(table);
+      }
+    }
+  }
+
+  private void bump(String table) {
+    synchronized (versions) {
+      Long version = versions.get(table);
+      versions.put(table, version != null ? version + 1 : 1L);
+    }
+  }
+
+  /** Reads the rows of a cached window. The window is shared with the cache. */
+  private static final class CachedCursor extends AbstractWindowedCursor {
+
+    private final String[] columns;
+
+    CachedCursor(String[] columns, CursorWindow window) {
+      this.columns = columns;
+      window.acquireReference();
+      setWindow(window);
+    }
+
+    @Override public int getCount() {
+      return mWindow.getNumRows();
+    }
+
+    @Override public String[] getColumnNames() {
+      return columns;
+    }
+  }
+}
@@ -24,11 +24,14 @@ package net.simonvt.schematic.utils;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.MergeCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.text.TextUtils;
 import android.util.Log;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -43,19 +46,70 @@ public class SelectionBuilder {
   private static final String TAG = "SelectionBuilder";
   private static final boolean LOGV = false;
 
+  private static final ThreadLocal<SelectionBuilder> RECYCLED = new ThreadLocal<>();
+
+  // Default limit on the number of bound variables in a statement, before SQLite 3.32
+  private static final int MAX_VARIABLES = 999;
+
   private String table = null;
-  private Map<String, String> projectionMap = new HashMap<>();
+  private Map<String, String> projectionMap = Collections.emptyMap();
+  private boolean projectionMapShared = true;
   private StringBuilder selection = new StringBuilder();
   private ArrayList<String> selectionArgs = new ArrayList<>();
+  private String inColumn = null;
+  private long[] inKeys = null;
+
+  /**
+   * Return a builder previously recycled on the calling thread, or a new builder if there is
+   * none.
+   *
+   * @see #recycle()
+   */
+  public static SelectionBuilder obtain() {
+    SelectionBuilder builder = RECYCLED.get();
+    if (builder == null) {
+      return new SelectionBuilder();
+    }
+
+    RECYCLED.set(null);
+    return builder;
+  }
+
+  /**
+   * Create an immutable projection map from a map of column names to the clauses they should be
+   * selected as. The returned map can be shared between builders using
+   * {@link #projectionMap(Map)}.
+   */
+  public static Map<String, String> createProjectionMap(Map<String, String> columnMap) {
+    Map<String, String> projectionMap = new HashMap<>(columnMap.size());
+    for (Map.Entry<String, String> entry : columnMap.entrySet()) {
+      String fromColumn = entry.getKey();
+      projectionMap.put(fromColumn, entry.getValue() + " AS " + fromColumn);
+    }
+    return Collections.unmodifiableMap(projectionMap);
+  }
 
   /** Reset any internal state, allowing this builder to be recycled. */
   public SelectionBuilder reset() {
     table = null;
+    projectionMap = Collections.emptyMap();
+    projectionMapShared = true;
     selection.setLength(0);
     selectionArgs.clear();
+    inColumn = null;
+    inKeys = null;
     return this;
   }
 
+  /**
+   * Reset this builder and hand it back to the calling thread, to be returned by the next call to
+   * {@link #obtain()}. The builder must not be used after calling this method.
+   */
+  public void recycle() {
+    reset();
+    RECYCLED.set(this);
+  }
+
   /**
    * Append the given selection clause to the internal state. Each clause is
    * surrounded with parenthesis and combined using {@code AND}.
@@ -84,6 +138,18 @@ public class SelectionBuilder {
     return this;
   }
 
+  /**
+   * Restrict the selection to rows where {@code column} is one of {@code keys}. The keys are bound
+   * in chunks that fit SQLite's limit on bound variables, and each chunk is executed as a
+   * separate statement. A query with more keys than fit in one chunk can not be sorted, grouped or
+   * limited, as the results of the chunks are only concatenated.
+   */
+  public SelectionBuilder whereIn(String column, long[] keys) {
+    inColumn = column;
+    inKeys = keys;
+    return this;
+  }
+
   public SelectionBuilder table(String table) {
     this.table = table;
     return this;
@@ -95,13 +161,32 @@ public class SelectionBuilder {
     }
   }
 
+  /**
+   * Use a projection map created with {@link #createProjectionMap(Map)}. The map is not copied
+   * unless columns are later added with {@link #map(String, String)} or
+   * {@link #mapToTable(String, String)}.
+   */
+  public SelectionBuilder projectionMap(Map<String, String> projectionMap) {
+    this.projectionMap = projectionMap;
+    projectionMapShared = true;
+    return this;
+  }
+
+  private Map<String, String> editableProjectionMap() {
+    if (projectionMapShared) {
+      projectionMap = new HashMap<>(projectionMap);
+      projectionMapShared = false;
+    }
+    return projectionMap;
+  }
+
   public SelectionBuilder mapToTable(String column, String table) {
-    projectionMap.put(column, table + "." + column);
+    editableProjectionMap().put(column, table + "." + column);
     return this;
   }
 
   public SelectionBuilder map(String fromColumn, String toClause) {
-    projectionMap.put(fromColumn, toClause + " AS " + fromColumn);
+    editableProjectionMap().put(fromColumn, toClause + " AS " + fromColumn);
     return this;
   }
 
@@ -153,21 +238,158 @@ public class SelectionBuilder {
     assertTable();
     if (columns != null) mapColumns(columns);
     if (LOGV) Log.v(TAG, "query(columns=" + Arrays.toString(columns) + ") " + this);
-    return db.query(table, columns, getSelection(), getSelectionArgs(), groupBy, having, orderBy,
-        limit);
+    if (inKeys == null) {
+      return db.query(table, columns, getSelection(), getSelectionArgs(), groupBy, having,
+          orderBy, limit);
+    }
+
+    int chunkSize = chunkSize(0);
+    int chunkCount = chunkCount(chunkSize);
+    if (chunkCount > 1 && (!TextUtils.isEmpty(groupBy) || !TextUtils.isEmpty(having)
+        || !TextUtils.isEmpty(orderBy) || !TextUtils.isEmpty(limit))) {
+      throw new IllegalArgumentException(inKeys.length + " keys do not fit in one statement, and "
+          + "the results of several statements can not be grouped, sorted or limited");
+    }
+    Cursor[] cursors = new Cursor[chunkCount];
+    try {
+      for (int i = 0; i < chunkCount; i++) {
+        cursors[i] = db.query(table, columns, getChunkSelection(i, chunkSize),
+            getChunkSelectionArgs(i, chunkSize), groupBy, having, orderBy, limit);
+      }
+    } catch (RuntimeException e) {
+      for (Cursor cursor : cursors) {
+        if (cursor != null) {
+          cursor.close();
+        }
+      }
+      throw e;
+    }
+
+    return chunkCount == 1 ? cursors[0] : new MergeCursor(cursors);
+  }
+
+  /**
+   * Build the query {@link #query(SQLiteDatabase, String[], String, String, String, String)} runs
+   * for the current internal state, without running it. Keys set with
+   * {@link #whereIn(String, long[])} are not included.
+   */
+  public String buildQuery(@Nullable String[] columns, @Nullable String groupBy,
+      @Nullable String having, @Nullable String orderBy, @Nullable String limit) {
+    assertTable();
+    if (columns != null) mapColumns(columns);
+    return SQLiteQueryBuilder.buildQueryString(false, table, columns, getSelection(), groupBy,
+        having, orderBy, limit);
+  }
+
+  /**
+   * Read the integer {@code columns} of the rows matching the current internal state, e.g. before
+   * they are updated or deleted. NULL values are read as 0.
+   *
+   * @return an array for each column, holding the column's value for each row.
+   */
+  public long[][] queryKeys(SQLiteDatabase db, String... columns) {
+    assertTable();
+    if (LOGV) Log.v(TAG, "queryKeys(columns=" + Arrays.toString(columns) + ") " + this);
+    Cursor cursor = query(db, columns.clone(), null, null, null, null);
+    try {
+      long[][] keys = new long[columns.length][cursor.getCount()];
+      for (int row = 0; cursor.moveToNext(); row++) {
+        for (int i = 0; i < columns.length; i++) {
+          keys[i][row] = cursor.getLong(i);
+        }
+      }
+      return keys;
+    } finally {
+      cursor.close();
+    }
   }
 
   /** Execute update using the current internal state as {@code WHERE} clause. */
   public int update(SQLiteDatabase db, ContentValues values) {
     assertTable();
     if (LOGV) Log.v(TAG, "update() " + this);
-    return db.update(table, values, getSelection(), getSelectionArgs());
+    if (inKeys == null) {
+      return db.update(table, values, getSelection(), getSelectionArgs());
+    }
+
+    int chunkSize = chunkSize(values.size());
+    int chunkCount = chunkCount(chunkSize);
+    int count = 0;
+    db.beginTransaction();
+    try {
+      for (int i = 0; i < chunkCount; i++) {
+        count += db.update(table, values, getChunkSelection(i, chunkSize),
+            getChunkSelectionArgs(i, chunkSize));
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    return count;
   }
 
   /** Execute delete using the current internal state as {@code WHERE} clause. */
   public int delete(SQLiteDatabase db) {
     assertTable();
     if (LOGV) Log.v(TAG, "delete() " + this);
-    return db.delete(table, getSelection(), getSelectionArgs());
+    if (inKeys == null) {
+      return db.delete(table, getSelection(), getSelectionArgs());
+    }
+
+    int chunkSize = chunkSize(0);
+    int chunkCount = chunkCount(chunkSize);
+    int count = 0;
+    db.beginTransaction();
+    try {
+      for (int i = 0; i < chunkCount; i++) {
+        count += db.delete(table, getChunkSelection(i, chunkSize),
+            getChunkSelectionArgs(i, chunkSize));
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    return count;
+  }
+
+  /** Number of keys bound in each chunk, leaving room for {@code otherArgs} other variables. */
+  private int chunkSize(int otherArgs) {
+    int chunkSize = MAX_VARIABLES - otherArgs - selectionArgs.size();
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Too many selection arguments to bind keys " + this);
+    }
+    return chunkSize;
+  }
+
+  private int chunkCount(int chunkSize) {
+    // An empty set of keys is queried once, matching no rows
+    return Math.max(1, (inKeys.length + chunkSize - 1) / chunkSize);
+  }
+
+  private String getChunkSelection(int chunk, int chunkSize) {
+    int keyCount = Math.min(chunkSize, inKeys.length - chunk * chunkSize);
+    StringBuilder chunkSelection = new StringBuilder(selection.length() + keyCount * 2 + 32);
+    if (selection.length() > 0) {
+      chunkSelection.append(selection).append(" AND ");
+    }
+    chunkSelection.append('(').append(inColumn).append(" IN (");
+    for (int i = 0; i < keyCount; i++) {
+      chunkSelection.append(i > 0 ? ",?" : "?");
+    }
+    return chunkSelection.append("))").toString();
+  }
+
+  private String[] getChunkSelectionArgs(int chunk, int chunkSize) {
+    int start = chunk * chunkSize;
+    int keyCount = Math.min(chunkSize, inKeys.length - start);
+    String[] chunkSelectionArgs = new String[selectionArgs.size() + keyCount];
+    int index = 0;
+    for (String arg : selectionArgs) {
+      chunkSelectionArgs[index++] = arg;
+    }
+    for (int i = start; i < start + keyCount; i++) {
+      chunkSelectionArgs[index++] = String.valueOf(inKeys[i]);
+    }
+    return chunkSelectionArgs;
   }
 }
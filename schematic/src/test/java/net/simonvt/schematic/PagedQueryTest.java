@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.List;
+import net.simonvt.schematic.utils.SelectionBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class PagedQueryTest {
+
+  private static final String AUTHORITY = "net.simonvt.schematic.test";
+
+  private static final int NOTE_COUNT = 25;
+
+  /** Joins every note with its list. The lists' IDs are selected last, and in reverse order. */
+  public static class JoinProvider extends ContentProvider {
+
+    private SQLiteDatabase db;
+
+    @Override public boolean onCreate() {
+      db = SQLiteDatabase.create(null);
+      db.execSQL("CREATE TABLE lists (_id INTEGER PRIMARY KEY, title TEXT)");
+      db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, listId INTEGER, note TEXT)");
+      for (int i = 1; i <= NOTE_COUNT; i++) {
+        db.execSQL("INSERT INTO lists (_id, title) VALUES (" + (100 - i) + ", 'list " + i + "')");
+        db.execSQL("INSERT INTO notes (_id, listId, note) VALUES (" + i + ", " + (100 - i)
+            + ", 'note " + i + "')");
+      }
+      return true;
+    }
+
+    @Override public Cursor query(Uri uri, String[] projection, String selection,
+        String[] selectionArgs, String sortOrder) {
+      return new SelectionBuilder().table("notes JOIN lists ON notes.listId=lists._id")
+          .where(selection, selectionArgs)
+          .query(db, projection, null, null, sortOrder,
+              uri.getQueryParameter(PagedQuery.QUERY_PARAMETER_LIMIT));
+    }
+
+    @Override public String getType(Uri uri) {
+      return null;
+    }
+
+    @Override public Uri insert(Uri uri, ContentValues values) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public int delete(Uri uri, String selection, String[] selectionArgs) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public int update(Uri uri, ContentValues values, String selection,
+        String[] selectionArgs) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Before public void setUp() {
+    Robolectric.setupContentProvider(JoinProvider.class, AUTHORITY);
+  }
+
+  private static PagedQuery query(String[] projection, String selection,
+      String[] selectionArgs, int pageSize) {
+    return new PagedQuery(RuntimeEnvironment.application.getContentResolver(),
+        Uri.parse("content://" + AUTHORITY + "/notes"), projection,
+        selection, selectionArgs, "notes._id", pageSize);
+  }
+
+  @Test public void pagesJoinWithoutProjection() {
+    List<String> notes = new ArrayList<>();
+    int pages = 0;
+    for (Cursor page : query(null, null, null, 10)) {
+      pages++;
+      while (page.moveToNext()) {
+        notes.add(page.getString(page.getColumnIndexOrThrow("note")));
+      }
+    }
+
+    assertEquals(3, pages);
+    assertEquals(NOTE_COUNT, notes.size());
+    for (int i = 0; i < NOTE_COUNT; i++) {
+      assertEquals("note " + (i + 1), notes.get(i));
+    }
+  }
+
+  @Test public void pagesWithSelectionAndProjection() {
+    List<String> notes = new ArrayList<>();
+    PagedQuery query = query(new String[] { "note" }, "notes._id>?", new String[] { "20" }, 2);
+    PagedQuery.RowMapper<String> mapper = new PagedQuery.RowMapper<String>() {
+      @Override protected String map(Cursor cursor) {
+        return cursor.getString(0);
+      }
+    };
+    for (String note : query.rows(mapper)) {
+      notes.add(note);
+    }
+
+    assertEquals(5, notes.size());
+    assertEquals("note 21", notes.get(0));
+    assertEquals("note 25", notes.get(4));
+  }
+}
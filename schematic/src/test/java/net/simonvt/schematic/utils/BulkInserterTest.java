@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class BulkInserterTest {
+
+  private SQLiteDatabase db;
+
+  @Before public void setUp() {
+    db = SQLiteDatabase.create(null);
+    db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, title TEXT UNIQUE, body TEXT)");
+  }
+
+  @After public void tearDown() {
+    db.close();
+  }
+
+  @Test public void insertsRowsWithDifferentColumns() {
+    BulkInserter inserter = new BulkInserter(db, "notes");
+    assertEquals(1L, inserter.insert(note("a", "first")));
+    assertEquals(2L, inserter.insert(note("b", null)));
+    assertEquals(3L, inserter.insert(note("c", "third")));
+    assertEquals(4L, inserter.insert(new ContentValues()));
+    inserter.close();
+
+    Cursor cursor = db.rawQuery("SELECT title, body FROM notes ORDER BY _id", null);
+    try {
+      assertEquals(4, cursor.getCount());
+      cursor.moveToPosition(1);
+      assertEquals("b", cursor.getString(0));
+      assertEquals(true, cursor.isNull(1));
+      cursor.moveToPosition(2);
+      assertEquals("third", cursor.getString(1));
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void conflictFailsWithoutAlgorithm() {
+    BulkInserter inserter = new BulkInserter(db, "notes");
+    inserter.insert(note("a", "first"));
+    try {
+      inserter.insert(note("a", "second"));
+      fail();
+    } catch (SQLException expected) {
+    } finally {
+      inserter.close();
+    }
+  }
+
+  @Test public void conflictAlgorithmResolvesConflicts() {
+    BulkInserter inserter = new BulkInserter(db, "notes", "IGNORE", null);
+    inserter.insert(note("a", "first"));
+    inserter.insert(note("a", "second"));
+    inserter.close();
+    assertEquals("first", body("a"));
+
+    inserter = new BulkInserter(db, "notes", "REPLACE", null);
+    inserter.insert(note("a", "third"));
+    inserter.close();
+    assertEquals("third", body("a"));
+  }
+
+  private String body(String title) {
+    Cursor cursor = db.rawQuery("SELECT body FROM notes WHERE title=?", new String[] { title });
+    try {
+      assertEquals(1, cursor.getCount());
+      cursor.moveToFirst();
+      return cursor.getString(0);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static ContentValues note(String title, String body) {
+    ContentValues values = new ContentValues();
+    values.put("title", title);
+    if (body != null) {
+      values.put("body", body);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import java.util.concurrent.Callable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DatabasePrewarmerTest {
+
+  private static class Helper extends SQLiteOpenHelper {
+
+    DatabasePrewarmer prewarmer;
+
+    int created;
+
+    Helper(Context context) {
+      super(context, null, null, 1);
+    }
+
+    @Override public void onCreate(SQLiteDatabase db) {
+      db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, title TEXT)");
+      if (prewarmer != null) {
+        // Called back on the prewarm thread, e.g. by a provider call from onCreate
+        prewarmer.await();
+      }
+      created++;
+    }
+
+    @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    }
+  }
+
+  private Helper helper;
+
+  @Before public void setUp() {
+    helper = new Helper(RuntimeEnvironment.application);
+  }
+
+  @After public void tearDown() {
+    helper.close();
+  }
+
+  @Test public void opensDatabaseAndSkipsInvalidStatements() {
+    DatabasePrewarmer prewarmer = new DatabasePrewarmer(helper, new String[] {
+        "SELECT * FROM notes", "SELECT * FROM missing", "SELECT title FROM notes WHERE (_id=?)"
+    });
+    prewarmer.run();
+    prewarmer.await();
+
+    assertEquals(1, helper.created);
+    assertTrue(helper.getReadableDatabase().isOpen());
+  }
+
+  @Test public void buildsStatementsOnceDatabaseIsOpen() {
+    final int[] createdBefore = { -1 };
+    DatabasePrewarmer prewarmer = new DatabasePrewarmer(helper, new Callable<String[]>() {
+      @Override public String[] call() {
+        createdBefore[0] = helper.created;
+        return new String[] { "SELECT title FROM notes" };
+      }
+    });
+    prewarmer.run();
+    prewarmer.await();
+
+    assertEquals(1, createdBefore[0]);
+  }
+
+  @Test public void failingToBuildStatementsReleasesAwait() {
+    DatabasePrewarmer prewarmer = new DatabasePrewarmer(helper, new Callable<String[]>() {
+      @Override public String[] call() {
+        throw new IllegalStateException("Unable to build");
+      }
+    });
+    prewarmer.run();
+    prewarmer.await();
+
+    assertEquals(1, helper.created);
+  }
+
+  @Test public void awaitOnPrewarmThreadReturns() {
+    DatabasePrewarmer prewarmer = new DatabasePrewarmer(helper, new String[0]);
+    helper.prewarmer = prewarmer;
+    // Run on this thread, which waited for itself before
+    prewarmer.run();
+
+    assertEquals(1, helper.created);
+    prewarmer.await();
+  }
+}
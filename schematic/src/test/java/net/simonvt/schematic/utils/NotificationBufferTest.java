@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Looper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowContentResolver;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationBufferTest {
+
+  private ContentResolver resolver;
+  private Uri lists;
+  private Uri notes;
+
+  @Before public void setUp() {
+    resolver = RuntimeEnvironment.application.getContentResolver();
+    lists = Uri.parse("content://net.simonvt.schematic.test/lists");
+    notes = Uri.parse("content://net.simonvt.schematic.test/notes");
+  }
+
+  private List<Uri> notified() {
+    List<Uri> uris = new ArrayList<>();
+    ShadowContentResolver shadowResolver = Shadow.extract(resolver);
+    for (ShadowContentResolver.NotifiedUri notified : shadowResolver.getNotifiedUris()) {
+      uris.add(notified.uri);
+    }
+    return uris;
+  }
+
+  @Test public void notifiesImmediatelyOutsideBatch() {
+    NotificationBuffer buffer = new NotificationBuffer(resolver, 0L);
+    buffer.notifyChange(lists);
+    buffer.notifyChange(lists);
+    assertEquals(Arrays.asList(lists, lists), notified());
+  }
+
+  @Test public void batchNotifiesEachUriOnce() {
+    NotificationBuffer buffer = new NotificationBuffer(resolver, 0L);
+    buffer.beginBatch();
+    buffer.notifyChange(lists);
+    buffer.notifyChange(notes);
+    buffer.notifyChange(lists);
+    assertTrue(notified().isEmpty());
+
+    buffer.endBatch(true);
+    assertEquals(Arrays.asList(lists, notes), notified());
+  }
+
+  @Test public void nestedBatchesNotifyWhenOutermostEnds() {
+    NotificationBuffer buffer = new NotificationBuffer(resolver, 0L);
+    buffer.beginBatch();
+    buffer.beginBatch();
+    buffer.notifyChange(notes);
+    buffer.endBatch(true);
+    assertTrue(notified().isEmpty());
+
+    buffer.endBatch(true);
+    assertEquals(Arrays.asList(notes), notified());
+  }
+
+  @Test public void unsuccessfulBatchDropsNotifications() {
+    NotificationBuffer buffer = new NotificationBuffer(resolver, 0L);
+    buffer.beginBatch();
+    buffer.notifyChange(lists);
+    buffer.beginBatch();
+    buffer.notifyChange(notes);
+    buffer.endBatch(false);
+    buffer.endBatch(true);
+    assertTrue(notified().isEmpty());
+
+    buffer.notifyChange(notes);
+    assertEquals(Arrays.asList(notes), notified());
+  }
+
+  @Test public void debouncesNotifications() {
+    NotificationBuffer buffer = new NotificationBuffer(resolver, 100L);
+    buffer.notifyChange(lists);
+    buffer.notifyChange(notes);
+    buffer.notifyChange(lists);
+    assertTrue(notified().isEmpty());
+
+    Looper looper = ShadowLooper.getLooperForThread(findThread("NotificationBuffer"));
+    ShadowLooper shadowLooper = Shadow.extract(looper);
+    shadowLooper.idle(100L, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(lists, notes), notified());
+  }
+
+  private static Thread findThread(String name) {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (name.equals(thread.getName())) {
+        return thread;
+      }
+    }
+    throw new AssertionError("No thread named " + name);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class QueryCacheTest {
+
+  private static final String[] TABLES = { "notes" };
+
+  private SQLiteDatabase db;
+
+  private QueryCache cache;
+
+  @Before public void setUp() {
+    db = SQLiteDatabase.create(null);
+    db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, title TEXT)");
+    for (String title : new String[] { "a", "b", "c" }) {
+      db.execSQL("INSERT INTO notes (title) VALUES (?)", new Object[] { title });
+    }
+    cache = new QueryCache(4);
+  }
+
+  @After public void tearDown() {
+    db.close();
+  }
+
+  @Test public void putTakesOverTheCursorsWindow() {
+    Cursor cursor = query();
+    Cursor cached = cache.put(key(), TABLES, cache.getVersions(TABLES), cursor);
+
+    assertNotSame(cursor, cached);
+    assertTrue(cursor.isClosed());
+    assertTitles(cached, "a", "b", "c");
+    cached.close();
+
+    // The window is still held by the cache after the returned cursor is closed
+    Cursor hit = cache.get(key());
+    assertNotNull(hit);
+    assertTitles(hit, "a", "b", "c");
+    hit.close();
+  }
+
+  @Test public void writeInvalidatesResult() {
+    long[] versions = cache.getVersions(TABLES);
+    cache.put(key(), TABLES, versions, query()).close();
+
+    cache.onWrite("notes");
+    assertNull(cache.get(key()));
+  }
+
+  @Test public void cursorsOutliveEvictedEntries() {
+    QueryCache cache = new QueryCache(1);
+    Cursor cached = cache.put(key(), TABLES, cache.getVersions(TABLES), query());
+    Cursor hit = cache.get(key());
+
+    // Replacing the only entry releases the cache's reference to its window
+    Uri otherUri = Uri.parse("content://test/other");
+    QueryCache.Key other = new QueryCache.Key(otherUri, null, null, null, null);
+    cache.put(other, TABLES, cache.getVersions(TABLES), query()).close();
+    assertNull(cache.get(key()));
+
+    assertTitles(cached, "a", "b", "c");
+    assertTitles(hit, "a", "b", "c");
+    cached.close();
+    hit.close();
+  }
+
+  @Test public void concurrentReadsAndWrites() throws Exception {
+    final QueryCache cache = new QueryCache(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      final int thread = i;
+      threads[i] = new Thread() {
+        @Override public void run() {
+          try {
+            for (int j = 0; j < 200; j++) {
+              Cursor hit = cache.get(key());
+              if (hit != null) {
+                assertTitles(hit, "a", "b", "c");
+                hit.close();
+              } else if (thread % 2 == 0) {
+                long[] versions = cache.getVersions(TABLES);
+                cache.put(key(), TABLES, versions, query()).close();
+              } else {
+                cache.onWrite("notes");
+              }
+            }
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+
+  @Test public void subqueryIsNotCached() {
+    Uri uri = Uri.parse("content://test/notes");
+    QueryCache.Key key = new QueryCache.Key(uri, new String[] {
+        "(SELECT COUNT(*) FROM notes) AS count"
+    }, null, null, null);
+    Cursor cursor = query();
+    assertSame(cursor, cache.put(key, TABLES, cache.getVersions(TABLES), cursor));
+    cursor.close();
+    assertNull(cache.get(key));
+  }
+
+  private Cursor query() {
+    return db.query("notes", new String[] { "title" }, null, null, null, null, "title");
+  }
+
+  private static QueryCache.Key key() {
+    return new QueryCache.Key(Uri.parse("content://test/notes"), new String[] { "title" }, null,
+        null, "title");
+  }
+
+  private static void assertTitles(Cursor cursor, String... titles) {
+    assertEquals(titles.length, cursor.getCount());
+    for (String title : titles) {
+      assertTrue(cursor.moveToNext());
+      assertEquals(title, cursor.getString(0));
+    }
+  }
+}
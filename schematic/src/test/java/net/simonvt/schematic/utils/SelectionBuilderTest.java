@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 Simon Vig Therkildsen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.simonvt.schematic.utils;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class SelectionBuilderTest {
+
+  private SQLiteDatabase db;
+
+  @Before public void setUp() {
+    db = SQLiteDatabase.create(null);
+    db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, title TEXT)");
+    for (int i = 1; i <= 3; i++) {
+      db.execSQL("INSERT INTO notes (title) VALUES ('note " + i + "')");
+    }
+  }
+
+  @After public void tearDown() {
+    db.close();
+  }
+
+  @Test public void recycledBuilderIsReused() {
+    SelectionBuilder builder = SelectionBuilder.obtain();
+    builder.table("notes").where("_id=?", "1");
+    builder.recycle();
+
+    SelectionBuilder obtained = SelectionBuilder.obtain();
+    assertSame(builder, obtained);
+    assertEquals("", obtained.getSelection());
+    assertEquals(0, obtained.getSelectionArgs().length);
+    assertNotSame(builder, SelectionBuilder.obtain());
+  }
+
+  @Test public void whereClausesAreCombined() {
+    SelectionBuilder builder = new SelectionBuilder()
+        .where("_id>?", "1")
+        .where(null)
+        .where("title=?", "note 3");
+    assertEquals("(_id>?) AND (title=?)", builder.getSelection());
+
+    Cursor cursor = builder.table("notes").query(db, new String[] { "_id" }, null);
+    try {
+      assertEquals(1, cursor.getCount());
+      cursor.moveToFirst();
+      assertEquals(3L, cursor.getLong(0));
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void sharedProjectionMapIsNotModified() {
+    Map<String, String> projectionMap =
+        SelectionBuilder.createProjectionMap(Collections.singletonMap("upper", "UPPER(title)"));
+
+    SelectionBuilder builder = new SelectionBuilder()
+        .table("notes")
+        .projectionMap(projectionMap)
+        .map("length", "LENGTH(title)")
+        .where("_id=?", "2");
+    assertEquals(1, projectionMap.size());
+
+    Cursor cursor = builder.query(db, new String[] { "upper", "length" }, null);
+    try {
+      cursor.moveToFirst();
+      assertEquals("NOTE 2", cursor.getString(cursor.getColumnIndexOrThrow("upper")));
+      assertEquals(6, cursor.getInt(cursor.getColumnIndexOrThrow("length")));
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void buildQueryMatchesQuery() {
+    Map<String, String> projectionMap =
+        SelectionBuilder.createProjectionMap(Collections.singletonMap("upper", "UPPER(title)"));
+    SelectionBuilder builder = new SelectionBuilder()
+        .table("notes")
+        .projectionMap(projectionMap)
+        .where("_id=?", "2");
+
+    assertEquals("SELECT UPPER(title) AS upper FROM notes WHERE (_id=?) ORDER BY title",
+        builder.buildQuery(new String[] { "upper" }, null, null, "title", null));
+    assertEquals("SELECT * FROM notes WHERE (_id=?) LIMIT 1",
+        builder.buildQuery(null, null, null, null, "1"));
+  }
+
+  @Test public void queryKeysReadsColumnsOfMatchingRows() {
+    long[][] keys = new SelectionBuilder()
+        .table("notes")
+        .where("_id>?", "1")
+        .queryKeys(db, "_id", "LENGTH(title)");
+    assertEquals(2, keys.length);
+    assertArrayEquals(new long[] { 2L, 3L }, keys[0]);
+    assertArrayEquals(new long[] { 6L, 6L }, keys[1]);
+  }
+
+  @Test public void keysAreQueriedInChunks() {
+    long[] keys = insertNotes(1500);
+
+    Cursor cursor = new SelectionBuilder()
+        .table("notes")
+        .whereIn("_id", keys)
+        .query(db, new String[] { "_id" }, null);
+    try {
+      assertEquals(1503, cursor.getCount());
+    } finally {
+      cursor.close();
+    }
+
+    assertEquals(1503, new SelectionBuilder().table("notes").whereIn("_id", keys).delete(db));
+  }
+
+  @Test public void sortingSeveralChunksThrows() {
+    long[] keys = insertNotes(1500);
+
+    try {
+      new SelectionBuilder()
+          .table("notes")
+          .whereIn("_id", keys)
+          .query(db, new String[] { "_id" }, "_id DESC");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+
+    try {
+      new SelectionBuilder()
+          .table("notes")
+          .whereIn("_id", keys)
+          .query(db, new String[] { "_id" }, null, null, null, "10");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test public void sortingOneChunkIsAllowed() {
+    Cursor cursor = new SelectionBuilder()
+        .table("notes")
+        .whereIn("_id", new long[] { 1L, 3L })
+        .query(db, new String[] { "_id" }, "_id DESC");
+    try {
+      assertEquals(2, cursor.getCount());
+      cursor.moveToFirst();
+      assertEquals(3L, cursor.getLong(0));
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /** Inserts {@code count} more notes, and returns the IDs of every note. */
+  private long[] insertNotes(int count) {
+    db.beginTransaction();
+    try {
+      for (int i = 0; i < count; i++) {
+        db.execSQL("INSERT INTO notes (title) VALUES ('note')");
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+
+    long[] keys = new long[count + 3];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i + 1;
+    }
+    return keys;
+  }
+}